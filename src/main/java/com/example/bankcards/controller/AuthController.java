@@ -2,26 +2,34 @@ package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.AuthResponse;
 import com.example.bankcards.dto.LoginRequest;
+import com.example.bankcards.dto.RefreshRequest;
 import com.example.bankcards.dto.RegisterRequest;
 import com.example.bankcards.entity.Role;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.RoleRepo;
 import com.example.bankcards.repository.UserRepo;
-import com.example.bankcards.security.JwtProvider;
+import com.example.bankcards.security.SecurityUser;
+import com.example.bankcards.security.UserSecurityChangedEvent;
+import com.example.bankcards.service.RefreshTokenService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
  * AuthController provides REST endpoints for user authentication and registration.
- * Supports login with JWT token generation and user registration with role assignment.
+ * Supports login with JWT and refresh token generation, token refresh, logout
+ * and user registration with role assignment.
  */
 @RestController
 @RequestMapping("/api/auth")
@@ -30,28 +38,60 @@ import org.springframework.web.bind.annotation.RestController;
 public class AuthController {
 
     private final AuthenticationManager authenticationManager;
-    private final JwtProvider jwtProvider;
+    private final RefreshTokenService refreshTokenService;
     private final UserRepo userRepo;
     private final RoleRepo roleRepo;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
-     * Authenticates a user and generates a JWT token.
+     * Authenticates a user and generates a JWT token with a refresh token.
      *
      * @param request LoginRequest containing username and password
-     * @return AuthResponse containing a JWT token if authentication succeeds
+     * @return AuthResponse containing a JWT token and a refresh token if authentication succeeds
      */
     @Operation(
             summary = "Authenticate user and generate JWT",
-            description = "Accepts username and password, verifies credentials, and returns a JWT token for authorized access."
+            description = "Accepts username and password, verifies credentials, and returns a short-lived JWT token "
+                    + "for authorized access together with a refresh token."
     )
     @PostMapping("login")
     public AuthResponse login(@RequestBody LoginRequest request) {
         var authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
         );
-        String token = jwtProvider.generateToken(authentication.getName());
-        return new AuthResponse(token);
+        return refreshTokenService.issue((SecurityUser) authentication.getPrincipal());
+    }
+
+    /**
+     * Exchanges a refresh token for a new JWT token and refresh token.
+     *
+     * @param request RefreshRequest containing the refresh token
+     * @return AuthResponse containing the new tokens
+     */
+    @Operation(
+            summary = "Refresh JWT",
+            description = "Consumes a refresh token and returns a new JWT token and refresh token without checking "
+                    + "the password. Presenting a consumed refresh token again revokes every token of its login."
+    )
+    @PostMapping("refresh")
+    public AuthResponse refresh(@RequestBody @Valid RefreshRequest request) {
+        return refreshTokenService.refresh(request.getRefreshToken());
+    }
+
+    /**
+     * Revokes a refresh token and every token issued from the same login.
+     *
+     * @param request RefreshRequest containing the refresh token
+     */
+    @Operation(
+            summary = "Log out",
+            description = "Revokes the refresh token and every JWT and refresh token issued from the same login."
+    )
+    @PostMapping("logout")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void logout(@RequestBody @Valid RefreshRequest request) {
+        refreshTokenService.logout(request.getRefreshToken());
     }
 
     /**
@@ -81,6 +121,7 @@ public class AuthController {
         user.getRoles().add(userRole);
 
         userRepo.save(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getUsername()));
         return "User registered successfully";
     }
 }
@@ -1,19 +1,49 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.CardBatchGetRequest;
+import com.example.bankcards.dto.CardBatchGetResponse;
+import com.example.bankcards.dto.CardBulkStatusRequest;
+import com.example.bankcards.dto.CardBulkStatusResponse;
+import com.example.bankcards.dto.CardImportResponse;
+import com.example.bankcards.dto.CardLookupRequest;
 import com.example.bankcards.dto.CardRequest;
 import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.CardSearchResponse;
+import com.example.bankcards.dto.CardStatsResponse;
+import com.example.bankcards.dto.LedgerBalanceResponse;
+import com.example.bankcards.dto.TransferHistoryResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardSearchFilter;
+import com.example.bankcards.service.CardBulkService;
+import com.example.bankcards.service.CardImportService;
 import com.example.bankcards.service.CardService;
+import com.example.bankcards.service.CardShardService;
+import com.example.bankcards.service.CardSnapshot;
+import com.example.bankcards.service.CardStatsService;
+import com.example.bankcards.service.LedgerService;
+import com.example.bankcards.service.StatementFormat;
+import com.example.bankcards.service.StatementService;
+import com.example.bankcards.service.TransferService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.UUID;
 
 /**
@@ -27,12 +57,22 @@ import java.util.UUID;
 public class CardController {
 
     private final CardService cardService;
+    private final CardBulkService cardBulkService;
+    private final CardImportService cardImportService;
+    private final CardShardService cardShardService;
+    private final CardStatsService cardStatsService;
+    private final LedgerService ledgerService;
+    private final TransferService transferService;
+    private final StatementService statementService;
 
     /**
      * Retrieves the authenticated user's cards in a paginated format.
+     * The page carries an ETag computed from the card versions; if the client's copy is still current,
+     * 304 is returned without loading the cards.
      *
      * @param page
      * @param size
+     * @param request the request, used to evaluate If-None-Match
      * @return a page of CardResponse objects belonging to the user
      */
     @Operation(
@@ -40,18 +80,25 @@ public class CardController {
             description = "Returns a paginated list of cards belonging to the authenticated user"
     )
     @GetMapping("/my")
-    public Page<CardResponse> getMyCards(@RequestParam(defaultValue = "0") int page,
-                                 @RequestParam(defaultValue = "10") int size) {
+    public ResponseEntity<Page<CardResponse>> getMyCards(@RequestParam(name = "page", defaultValue = "0") int page,
+                                                         @RequestParam(name = "size", defaultValue = "10") int size,
+                                                         WebRequest request) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        return cardService.getCardsByUser(username, page, size)
-                .map(CardResponse::fromEntity);
+        String etag = cardService.getCardsEtagByUser(username, page, size);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(cardService.getCardsByUser(username, page, size));
     }
 
     /**
-     * Retrieves details of a specific card by its ID.
-     * If the card's expiry date has passed, its status will be updated to EXPIRED
+     * Retrieves details of a specific card by its ID, served from the card cache when possible.
+     * The read never changes the card; expired cards are marked by a scheduled job.
+     * The response carries an ETag derived from the card version; if the client's copy is still current,
+     * 304 is returned without a body.
      *
      * @param id
+     * @param request the request, used to evaluate If-None-Match
      * @return CardResponse
      */
     @Operation(
@@ -59,10 +106,86 @@ public class CardController {
             description = "Retrieve details of a specific card by its ID"
     )
     @GetMapping("/{id}")
-    public CardResponse getCard(@PathVariable UUID id) {
-        Card card = cardService.getCard(id);
-        card = cardService.updateCardStatusIfExpired(card);
-        return CardResponse.fromEntity(card);
+    public ResponseEntity<CardResponse> getCard(@PathVariable("id") UUID id, WebRequest request) {
+        CardSnapshot snapshot = cardService.getCardSnapshot(id);
+        if (request.checkNotModified(snapshot.etag())) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(snapshot.etag()).body(snapshot.toResponse());
+    }
+
+    /**
+     * Retrieves many cards by ID in one round-trip, in the order they were requested.
+     * Users only get their own cards; admins can get any card. Deleted and invisible cards are reported as not found.
+     *
+     * @param request CardBatchGetRequest with the IDs of the cards
+     * @return CardBatchGetResponse with the cards found and the IDs that were not
+     */
+    @Operation(
+            summary = "Get many cards",
+            description = "Retrieve the cards with the given IDs with a single query"
+    )
+    @PostMapping("/batch-get")
+    public CardBatchGetResponse getCards(@RequestBody @Valid CardBatchGetRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean admin = authentication.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ADMIN"));
+        return cardService.getCards(request.getIds(), authentication.getName(), admin);
+    }
+
+    /**
+     * Retrieves the transfer history of a card, newest first, one page at a time.
+     * Users can only see the history of their own cards; admins can see any card.
+     *
+     * @param id
+     * @param cursor cursor returned with the previous page, omitted for the first page
+     * @param size
+     * @return TransferHistoryResponse with the page and the cursor of the next one
+     */
+    @Operation(
+            summary = "Get card transfer history",
+            description = "Returns incoming and outgoing transfers of a card using cursor-based pagination"
+    )
+    @GetMapping("/{id}/transfers")
+    public TransferHistoryResponse getCardTransfers(@PathVariable("id") UUID id,
+                                                    @RequestParam(name = "cursor", required = false) String cursor,
+                                                    @RequestParam(name = "size", defaultValue = "20") int size) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean admin = authentication.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ADMIN"));
+        return transferService.getCardHistory(id, cursor, size, authentication.getName(), admin);
+    }
+
+    /**
+     * Exports all transfers of a card as a downloadable statement.
+     * Rows are streamed from the database while the response is written.
+     * Users can only export their own cards; admins can export any card.
+     *
+     * @param id
+     * @param format csv or ndjson
+     * @param gzip whether to compress the statement
+     * @return the statement as a streamed attachment
+     */
+    @Operation(
+            summary = "Export card statement",
+            description = "Streams all transfers of a card as CSV or NDJSON, optionally gzip-compressed"
+    )
+    @GetMapping("/{id}/statement")
+    public ResponseEntity<StreamingResponseBody> exportStatement(@PathVariable("id") UUID id,
+                                                                 @RequestParam(name = "format", defaultValue = "csv") String format,
+                                                                 @RequestParam(name = "gzip", defaultValue = "false") boolean gzip) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean admin = authentication.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ADMIN"));
+        StatementFormat statementFormat = StatementFormat.from(format);
+        statementService.checkAccess(id, authentication.getName(), admin);
+
+        String fileName = "statement-" + id + "." + statementFormat.getExtension() + (gzip ? ".gz" : "");
+        StreamingResponseBody body = out -> statementService.export(id, statementFormat, gzip, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, gzip ? "application/gzip" : statementFormat.getContentType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
     }
 
     /**
@@ -82,8 +205,67 @@ public class CardController {
     public Page<CardResponse> getCardsByStatus(@PathVariable("status") CardStatus status,
                                                @RequestParam(name = "page", defaultValue = "0") int page,
                                                @RequestParam(name = "size", defaultValue = "10") int size) {
-        return cardService.getCardsByStatus(status, page, size)
-                .map(CardResponse::fromEntity);
+        return cardService.getCardsByStatus(status, page, size);
+    }
+
+    /**
+     * Searches cards by any combination of filters, ordered by expiry date, one slice at a time.
+     *
+     * @param status
+     * @param last4 the last 4 digits of the card number
+     * @param owner the username of the card owner
+     * @param expiryFrom the earliest expiry date, inclusive
+     * @param expiryTo the latest expiry date, inclusive
+     * @param cursor cursor returned with the previous slice, omitted for the first one
+     * @param size
+     * @return CardSearchResponse with the slice and the cursor of the next one
+     */
+    @Operation(
+            summary = "Search cards",
+            description = "Returns cards filtered by status, last 4 digits, owner and expiry range using cursor-based pagination (ADMIN only)"
+    )
+    @GetMapping("/search")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public CardSearchResponse searchCards(@RequestParam(name = "status", required = false) CardStatus status,
+                                          @RequestParam(name = "last4", required = false) String last4,
+                                          @RequestParam(name = "owner", required = false) String owner,
+                                          @RequestParam(name = "expiryFrom", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiryFrom,
+                                          @RequestParam(name = "expiryTo", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiryTo,
+                                          @RequestParam(name = "cursor", required = false) String cursor,
+                                          @RequestParam(name = "size", defaultValue = "20") int size) {
+        return cardService.searchCards(new CardSearchFilter(status, last4, owner, expiryFrom, expiryTo), cursor, size);
+    }
+
+    /**
+     * Retrieves card counts and total balances by status and the number of cards expiring this month.
+     * The numbers are read from incrementally maintained counters, not aggregated over all cards.
+     *
+     * @return CardStatsResponse
+     */
+    @Operation(
+            summary = "Get card statistics",
+            description = "Returns card counts and balances by status and cards expiring this month (ADMIN only)"
+    )
+    @GetMapping("/stats")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public CardStatsResponse getCardStats() {
+        return cardStatsService.getStats();
+    }
+
+    /**
+     * Finds a card by its full number.
+     *
+     * @param request CardLookupRequest with the card number
+     * @return CardResponse
+     */
+    @Operation(
+            summary = "Find a card by number",
+            description = "ADMIN finds a card by its full number"
+    )
+    @PostMapping("/lookup")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public CardResponse lookupCard(@RequestBody @Valid CardLookupRequest request) {
+        return CardResponse.fromEntity(cardService.getCardByNumber(request.getNumber()));
     }
 
     /**
@@ -102,6 +284,26 @@ public class CardController {
         return CardResponse.fromEntity(cardService.createCard(request));
     }
 
+    /**
+     * Issues cards in bulk from an uploaded CSV or NDJSON file.
+     * The file is read as it is uploaded; valid rows are inserted in batches and the rejected ones are reported.
+     *
+     * @param format csv or ndjson
+     * @param body the uploaded file
+     * @return CardImportResponse with the counts and the rejected rows
+     * @throws IOException if reading the upload fails
+     */
+    @Operation(
+            summary = "Import cards",
+            description = "ADMIN issues cards in bulk from CSV rows (user,number,expiry,balance) or NDJSON objects"
+    )
+    @PostMapping("/import")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public CardImportResponse importCards(@RequestParam(name = "format", defaultValue = "csv") String format,
+                                          InputStream body) throws IOException {
+        return cardImportService.importCards(body, StatementFormat.from(format));
+    }
+
     /**
      * Blocks a card by ID.
      *
@@ -111,7 +313,7 @@ public class CardController {
     @Operation(summary = "Block a card", description = "ADMIN blocks a specific card")
     @PostMapping("/{id}/block")
     @PreAuthorize("hasAuthority('ADMIN')")
-    public CardResponse blockCard(@PathVariable UUID id) {
+    public CardResponse blockCard(@PathVariable("id") UUID id) {
         cardService.blockCard(id);
         return CardResponse.fromEntity(cardService.getCard(id));
     }
@@ -125,11 +327,96 @@ public class CardController {
     @Operation(summary = "Activate a card", description = "ADMIN activates a specific card")
     @PostMapping("/{id}/activate")
     @PreAuthorize("hasAuthority('ADMIN')")
-    public CardResponse activateCard(@PathVariable UUID id) {
+    public CardResponse activateCard(@PathVariable("id") UUID id) {
         cardService.activateCard(id);
         return CardResponse.fromEntity(cardService.getCard(id));
     }
 
+    /**
+     * Blocks many cards, given by ID or by filter, with set-based updates.
+     *
+     * @param request CardBulkStatusRequest with the IDs of the cards or the filter they must match
+     * @return CardBulkStatusResponse with the IDs of the blocked cards
+     */
+    @Operation(
+            summary = "Block cards in bulk",
+            description = "ADMIN blocks the cards with the given IDs or matching status, last 4 digits, owner and expiry range"
+    )
+    @PostMapping("/bulk/block")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public CardBulkStatusResponse blockCards(@RequestBody @Valid CardBulkStatusRequest request) {
+        return cardBulkService.changeStatus(request, CardStatus.BLOCKED);
+    }
+
+    /**
+     * Activates many cards, given by ID or by filter, with set-based updates.
+     * Cards whose expiry date has passed become EXPIRED instead.
+     *
+     * @param request CardBulkStatusRequest with the IDs of the cards or the filter they must match
+     * @return CardBulkStatusResponse with the IDs of the changed cards
+     */
+    @Operation(
+            summary = "Activate cards in bulk",
+            description = "ADMIN activates the cards with the given IDs or matching status, last 4 digits, owner and expiry range"
+    )
+    @PostMapping("/bulk/activate")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public CardBulkStatusResponse activateCards(@RequestBody @Valid CardBulkStatusRequest request) {
+        return cardBulkService.changeStatus(request, CardStatus.ACTIVE);
+    }
+
+    /**
+     * Deletes many cards, given by ID or by filter, with set-based updates.
+     *
+     * @param request CardBulkStatusRequest with the IDs of the cards or the filter they must match
+     * @return CardBulkStatusResponse with the IDs of the deleted cards
+     */
+    @Operation(
+            summary = "Delete cards in bulk",
+            description = "ADMIN deletes the cards with the given IDs or matching status, last 4 digits, owner and expiry range"
+    )
+    @PostMapping("/bulk/delete")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public CardBulkStatusResponse deleteCards(@RequestBody @Valid CardBulkStatusRequest request) {
+        return cardBulkService.changeStatus(request, CardStatus.DELETED);
+    }
+
+    /**
+     * Compares the ledger balance of a card with the balance stored on it.
+     *
+     * @param id
+     * @return LedgerBalanceResponse with both balances
+     */
+    @Operation(
+            summary = "Get card ledger balance",
+            description = "Returns the balance computed from the ledger next to the stored card balance (ADMIN only)"
+    )
+    @GetMapping("/{id}/ledger")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public LedgerBalanceResponse getLedgerBalance(@PathVariable("id") UUID id) {
+        return ledgerService.getBalance(id);
+    }
+
+    /**
+     * Sets the number of balance shards of a hot card.
+     * Inbound credits are spread over the shards so that they do not queue on the card row; 0 turns sharding off.
+     *
+     * @param id
+     * @param count the number of shards
+     * @return CardResponse with the current total balance
+     */
+    @Operation(
+            summary = "Shard a card balance",
+            description = "ADMIN spreads inbound credits of a hot card over the given number of balance shards"
+    )
+    @PutMapping("/{id}/shards")
+    @PreAuthorize("hasAuthority('ADMIN')")
+    public CardResponse reshardCard(@PathVariable("id") UUID id,
+                                    @RequestParam(name = "count") int count) {
+        cardShardService.reshard(id, count);
+        return CardResponse.fromEntity(cardService.getCard(id));
+    }
+
     /**
      * Allows a user to request blocking of their card.
      *
@@ -143,7 +430,7 @@ public class CardController {
     )
     @PostMapping("/{id}/request-block")
     @PreAuthorize("hasAuthority('USER')")
-    public CardResponse requestBlockCard(@PathVariable UUID id) {
+    public CardResponse requestBlockCard(@PathVariable("id") UUID id) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
         Card card = cardService.getCard(id);
         if (!card.getUser().getUsername().equals(username)) {
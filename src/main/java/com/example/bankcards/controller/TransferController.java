@@ -1,9 +1,14 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.BatchTransferRequest;
+import com.example.bankcards.dto.BatchTransferResponse;
 import com.example.bankcards.dto.TransferRequest;
 import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.dto.TransferStatusResponse;
 import com.example.bankcards.entity.Transfer;
 import com.example.bankcards.repository.TransferRepo;
+import com.example.bankcards.service.AsyncTransferService;
+import com.example.bankcards.service.IdempotencyService;
 import com.example.bankcards.service.TransferService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -12,10 +17,15 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.math.BigDecimal;
@@ -32,6 +42,8 @@ import java.util.UUID;
 public class TransferController {
 
     private final TransferService transferService;
+    private final IdempotencyService idempotencyService;
+    private final AsyncTransferService asyncTransferService;
 
     /**
      * Makes a money transfer between two cards owned by the authenticated user.
@@ -42,7 +54,11 @@ public class TransferController {
      *     <li>Sufficient funds are available</li>
      * </ul>
      *
+     * If an Idempotency-Key header is given, retries with the same key return the original
+     * result without executing the transfer again.
+     *
      * @param request TransferRequest containing from card ID, to card ID, and transfer amount
+     * @param idempotencyKey optional client generated key identifying this transfer
      * @return TransferResponse with transfer details
      * @throws RuntimeException if validation fails
      */
@@ -52,13 +68,19 @@ public class TransferController {
     )
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Transfer completed successfully"),
-            @ApiResponse(responseCode = "400", description = "Invalid request or insufficient funds"),
-            @ApiResponse(responseCode = "401", description = "Unauthorized access")
+            @ApiResponse(responseCode = "400", description = "Invalid request, insufficient funds or reused Idempotency-Key"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized access"),
+            @ApiResponse(responseCode = "409", description = "A request with the same Idempotency-Key is still in progress")
     })
     @PostMapping
-    public TransferResponse makeTransfer(@RequestBody @Valid TransferRequest request) {
+    public TransferResponse makeTransfer(@RequestBody @Valid TransferRequest request,
+                                         @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
 
+        if (idempotencyKey != null) {
+            return idempotencyService.transfer(idempotencyKey, username, request);
+        }
+
         return transferService.transfer(
                 request.getFromCardId(),
                 request.getToCardId(),
@@ -66,4 +88,76 @@ public class TransferController {
                 username
         );
     }
+
+    /**
+     * Makes many money transfers in a single transaction.
+     * Each transfer is validated with the same rules as a single transfer, and a failing item
+     * does not prevent the others from being applied.
+     *
+     * @param request BatchTransferRequest containing the transfers to perform
+     * @return BatchTransferResponse with the result of every transfer
+     */
+    @Operation(
+            summary = "Make a batch of transfers",
+            description = "Applies a list of transfers in one transaction and reports success or failure for each item."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see per-item results"),
+            @ApiResponse(responseCode = "400", description = "Invalid request"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized access")
+    })
+    @PostMapping("/batch")
+    public BatchTransferResponse makeBatchTransfer(@RequestBody @Valid BatchTransferRequest request) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+
+        return transferService.transferBatch(request.getTransfers(), username);
+    }
+
+    /**
+     * Queues a money transfer for asynchronous execution.
+     * The transfer is validated and applied later by a background worker with the same rules
+     * as a synchronous transfer; its outcome can be polled with {@link #getTransferStatus(UUID)}.
+     *
+     * @param request TransferRequest containing from card ID, to card ID, and transfer amount
+     * @return TransferStatusResponse with the id of the queued transfer and PENDING status
+     */
+    @Operation(
+            summary = "Submit a transfer asynchronously",
+            description = "Queues a transfer and returns its id immediately. Poll GET /api/transfers/{id} for the result."
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Transfer accepted for processing"),
+            @ApiResponse(responseCode = "400", description = "Invalid request"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized access"),
+            @ApiResponse(responseCode = "429", description = "Transfer queue is full, retry later")
+    })
+    @PostMapping("/async")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public TransferStatusResponse submitTransfer(@RequestBody @Valid TransferRequest request) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+
+        return asyncTransferService.submit(
+                request.getFromCardId(),
+                request.getToCardId(),
+                request.getAmount(),
+                username
+        );
+    }
+
+    /**
+     * Returns the status of a transfer made from one of the authenticated user's cards.
+     *
+     * @param id UUID of the transfer
+     * @return TransferStatusResponse with the current status
+     */
+    @Operation(
+            summary = "Get transfer status",
+            description = "Returns whether a transfer is pending, completed or failed."
+    )
+    @GetMapping("/{id}")
+    public TransferStatusResponse getTransferStatus(@PathVariable("id") UUID id) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+
+        return asyncTransferService.getStatus(id, username);
+    }
 }
@@ -4,11 +4,19 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 
 /**
- * AuthResponse is a DTO used to return a JWT authentication token after a successful login.
+ * AuthResponse is a DTO used to return the tokens issued after a successful login or refresh.
  */
 @Data
 @AllArgsConstructor
 public class AuthResponse {
 
+    /**
+     * The short-lived JWT access token.
+     */
     private String token;
+
+    /**
+     * The opaque refresh token, usable once to obtain a new pair of tokens.
+     */
+    private String refreshToken;
 }
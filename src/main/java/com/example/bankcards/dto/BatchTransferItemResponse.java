@@ -0,0 +1,40 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * BatchTransferItemResponse is a DTO describing the outcome of a single transfer inside a batch.
+ */
+@Data
+@AllArgsConstructor
+public class BatchTransferItemResponse {
+
+    /**
+     * Position of the transfer in the original batch request.
+     */
+    private int index;
+
+    /**
+     * Whether the transfer was applied.
+     */
+    private boolean success;
+
+    /**
+     * Details of the completed transfer, null if it failed.
+     */
+    private TransferResponse transfer;
+
+    /**
+     * Reason of the failure, null if the transfer succeeded.
+     */
+    private String error;
+
+    public static BatchTransferItemResponse succeeded(int index, TransferResponse transfer) {
+        return new BatchTransferItemResponse(index, true, transfer, null);
+    }
+
+    public static BatchTransferItemResponse failed(int index, String error) {
+        return new BatchTransferItemResponse(index, false, null, error);
+    }
+}
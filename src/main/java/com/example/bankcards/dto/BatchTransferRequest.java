@@ -0,0 +1,22 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * BatchTransferRequest is a DTO used to request many transfers in a single call.
+ */
+@Data
+public class BatchTransferRequest {
+
+    /**
+     * Transfers to execute, applied in the given order.
+     */
+    @NotEmpty(message = "Transfers are required")
+    @Size(max = 1000, message = "Batch cannot contain more than 1000 transfers")
+    private List<@Valid TransferRequest> transfers;
+}
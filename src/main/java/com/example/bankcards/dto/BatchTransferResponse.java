@@ -0,0 +1,40 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * BatchTransferResponse is a DTO used to return the per-item results of a batch transfer.
+ */
+@Data
+@AllArgsConstructor
+public class BatchTransferResponse {
+
+    /**
+     * Number of transfers that were applied.
+     */
+    private int succeeded;
+
+    /**
+     * Number of transfers that were rejected.
+     */
+    private int failed;
+
+    /**
+     * Results in the same order as the requested transfers.
+     */
+    private List<BatchTransferItemResponse> results;
+
+    /**
+     * Factory method that builds the response and its counters from item results.
+     *
+     * @param results per-item results
+     * @return a response DTO representing the batch
+     */
+    public static BatchTransferResponse of(List<BatchTransferItemResponse> results) {
+        int succeeded = (int) results.stream().filter(BatchTransferItemResponse::isSuccess).count();
+        return new BatchTransferResponse(succeeded, results.size() - succeeded, results);
+    }
+}
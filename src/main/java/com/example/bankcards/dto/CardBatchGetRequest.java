@@ -0,0 +1,23 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * CardBatchGetRequest is a DTO used to fetch many cards in a single call.
+ */
+@Data
+public class CardBatchGetRequest {
+
+    /**
+     * IDs of the cards to fetch. Repeated IDs are returned once.
+     */
+    @NotEmpty(message = "Card IDs are required")
+    @Size(max = 500, message = "Cannot fetch more than 500 cards at once")
+    private List<@NotNull UUID> ids;
+}
@@ -0,0 +1,25 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * CardBatchGetResponse is a DTO used to return the cards fetched by a multi-get.
+ */
+@Data
+@AllArgsConstructor
+public class CardBatchGetResponse {
+
+    /**
+     * Cards found, in the order their IDs were first requested.
+     */
+    private List<CardResponse> cards;
+
+    /**
+     * Requested IDs of cards that do not exist, are deleted or are not visible to the caller.
+     */
+    private List<UUID> notFound;
+}
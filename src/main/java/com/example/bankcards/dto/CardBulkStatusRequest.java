@@ -0,0 +1,48 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardStatus;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * CardBulkStatusRequest is a DTO used to change the status of many cards in a single call.
+ * The cards are given either as a list of IDs or as a filter; null filter fields are not applied.
+ */
+@Data
+public class CardBulkStatusRequest {
+
+    /**
+     * IDs of the cards to change. Cannot be combined with the filter fields.
+     */
+    @Size(max = 10000, message = "Cannot change more than 10000 cards by ID")
+    private List<UUID> ids;
+
+    /**
+     * Current status of the cards to change.
+     */
+    private CardStatus status;
+
+    /**
+     * Last 4 digits of the card number.
+     */
+    private String last4;
+
+    /**
+     * Username of the card owner.
+     */
+    private String owner;
+
+    /**
+     * Earliest expiry date, inclusive.
+     */
+    private LocalDate expiryFrom;
+
+    /**
+     * Latest expiry date, inclusive.
+     */
+    private LocalDate expiryTo;
+}
@@ -0,0 +1,26 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * CardBulkStatusResponse is a DTO used to return the outcome of a bulk status change.
+ */
+@Data
+@AllArgsConstructor
+public class CardBulkStatusResponse {
+
+    /**
+     * Number of cards whose status changed.
+     */
+    private long updated;
+
+    /**
+     * IDs of the cards whose status changed.
+     * Cards that are missing, deleted or already in the requested status are not included.
+     */
+    private List<UUID> ids;
+}
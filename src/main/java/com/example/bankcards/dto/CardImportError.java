@@ -0,0 +1,22 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * CardImportError is a DTO describing a row of a bulk card import that was rejected.
+ */
+@Data
+@AllArgsConstructor
+public class CardImportError {
+
+    /**
+     * Line number of the row in the uploaded file, starting at 1.
+     */
+    private long line;
+
+    /**
+     * Reason the row was rejected.
+     */
+    private String error;
+}
@@ -0,0 +1,29 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * CardImportResponse is a DTO used to return the outcome of a bulk card import.
+ */
+@Data
+@AllArgsConstructor
+public class CardImportResponse {
+
+    /**
+     * Number of cards that were issued.
+     */
+    private long imported;
+
+    /**
+     * Number of rows that were rejected.
+     */
+    private long failed;
+
+    /**
+     * Rejected rows with their line numbers, limited to the first few so the report stays small.
+     */
+    private List<CardImportError> errors;
+}
@@ -0,0 +1,54 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * CardImportRow is a DTO describing one card of a bulk issuance import.
+ * The owner is given either by user ID or by username.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardImportRow {
+
+    /**
+     * The unique identifier of the user who owns the card, null if the owner is given by username.
+     */
+    private UUID userId;
+
+    /**
+     * The username of the user who owns the card, null if the owner is given by user ID.
+     */
+    private String username;
+
+    /**
+     * The card number.
+     * Must be 16 digits long.
+     */
+    @NotBlank(message = "Card number is required")
+    @Pattern(regexp = "\\d{16}", message = "Card number must be 16 digits")
+    private String number;
+
+    /**
+     * The expiry date of the card.
+     * Must be a date in the future.
+     */
+    @NotNull(message = "Expiry date is required")
+    @Future(message = "Expiry date must be in the future")
+    private LocalDate expiry;
+
+    /**
+     * The initial balance of the card.
+     * Cannot be negative.
+     */
+    @NotNull(message = "Balance is required")
+    @DecimalMin(value = "0.0", inclusive = true, message = "Balance cannot be negative")
+    private BigDecimal balance;
+}
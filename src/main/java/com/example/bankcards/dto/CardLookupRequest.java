@@ -0,0 +1,21 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+/**
+ * CardLookupRequest is a DTO used to find a card by its full number.
+ * The number is sent in the request body so that it does not end up in URLs and access logs.
+ */
+@Data
+public class CardLookupRequest {
+
+    /**
+     * The full card number.
+     * Must be 16 digits long.
+     */
+    @NotBlank(message = "Card number is required")
+    @Pattern(regexp = "\\d{16}", message = "Card number must be 16 digits")
+    private String number;
+}
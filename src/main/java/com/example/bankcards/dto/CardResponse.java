@@ -59,7 +59,7 @@ public class CardResponse {
                 card.getUser().getUsername(),
                 card.getExpiry(),
                 card.getStatus(),
-                card.getBalance()
+                card.getTotalBalance()
         );
     }
 }
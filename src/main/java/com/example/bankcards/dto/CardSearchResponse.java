@@ -0,0 +1,24 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * CardSearchResponse is a DTO used to return one slice of an admin card search.
+ */
+@Data
+@AllArgsConstructor
+public class CardSearchResponse {
+
+    /**
+     * Cards on this slice, ordered by expiry date and id.
+     */
+    private List<CardResponse> items;
+
+    /**
+     * Opaque cursor to request the next slice, null if this is the last one.
+     */
+    private String nextCursor;
+}
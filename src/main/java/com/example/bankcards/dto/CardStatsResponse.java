@@ -0,0 +1,24 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * CardStatsResponse is a DTO used to return the card statistics of the admin dashboard.
+ */
+@Data
+@AllArgsConstructor
+public class CardStatsResponse {
+
+    /**
+     * Card counts and total balances, one entry per status.
+     */
+    private List<CardStatusStats> statuses;
+
+    /**
+     * Number of cards, other than deleted ones, whose expiry date falls in the current month.
+     */
+    private long expiringThisMonth;
+}
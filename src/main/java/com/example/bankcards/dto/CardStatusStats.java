@@ -0,0 +1,30 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * CardStatusStats is a DTO with the number and total balance of the cards in one status.
+ */
+@Data
+@AllArgsConstructor
+public class CardStatusStats {
+
+    /**
+     * The card status.
+     */
+    private CardStatus status;
+
+    /**
+     * Number of cards in this status.
+     */
+    private long count;
+
+    /**
+     * Total balance of the cards in this status, including balance shards.
+     */
+    private BigDecimal totalBalance;
+}
@@ -0,0 +1,35 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * LedgerBalanceResponse is a DTO used to compare the ledger balance of a card with its stored balance.
+ */
+@Data
+@AllArgsConstructor
+public class LedgerBalanceResponse {
+
+    /**
+     * UUID of the card.
+     */
+    private UUID cardId;
+
+    /**
+     * Balance computed from the ledger: latest snapshot plus postings after it.
+     */
+    private BigDecimal ledgerBalance;
+
+    /**
+     * Balance stored on the card, including its balance shards.
+     */
+    private BigDecimal cardBalance;
+
+    /**
+     * Whether both balances are equal.
+     */
+    private boolean consistent;
+}
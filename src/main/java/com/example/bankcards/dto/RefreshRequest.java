@@ -0,0 +1,17 @@
+package com.example.bankcards.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+/**
+ * RefreshRequest is a DTO used to receive a refresh token, to rotate it or to log out.
+ */
+@Data
+public class RefreshRequest {
+
+    /**
+     * The refresh token returned by the previous login or refresh.
+     */
+    @NotBlank
+    private String refreshToken;
+}
@@ -0,0 +1,42 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * TransferHistoryItem is a lightweight projection of a transfer used in card history listings.
+ * It is built directly by the query, without loading Transfer or Card entities.
+ */
+@Data
+@AllArgsConstructor
+public class TransferHistoryItem {
+
+    /**
+     * UUID of the transfer.
+     */
+    private UUID id;
+
+    /**
+     * UUID of the card from which the amount was transferred.
+     */
+    private UUID fromCardId;
+
+    /**
+     * UUID of the card to which the amount was transferred.
+     */
+    private UUID toCardId;
+
+    /**
+     * Amount transferred.
+     */
+    private BigDecimal amount;
+
+    /**
+     * Timestamp when the transfer was created.
+     */
+    private Instant createdAt;
+}
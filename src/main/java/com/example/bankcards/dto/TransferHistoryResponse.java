@@ -0,0 +1,24 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * TransferHistoryResponse is a DTO used to return one page of a card's transfer history.
+ */
+@Data
+@AllArgsConstructor
+public class TransferHistoryResponse {
+
+    /**
+     * Transfers on this page, newest first.
+     */
+    private List<TransferHistoryItem> items;
+
+    /**
+     * Opaque cursor to request the next page, null if this is the last page.
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,60 @@
+package com.example.bankcards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * TransferStatusResponse is a DTO used to report the progress of an asynchronously submitted transfer.
+ */
+@Data
+@AllArgsConstructor
+public class TransferStatusResponse {
+
+    /**
+     * Processing state of an asynchronous transfer.
+     */
+    public enum Status {
+
+        /** Transfer is queued and has not been applied yet. */
+        PENDING,
+
+        /** Transfer has been committed. */
+        COMPLETED,
+
+        /** Transfer was rejected, see the error. */
+        FAILED
+    }
+
+    /**
+     * UUID of the transfer.
+     */
+    private UUID id;
+
+    /**
+     * Current processing state.
+     */
+    private Status status;
+
+    /**
+     * UUID of the card from which the amount is transferred.
+     */
+    private UUID fromCardId;
+
+    /**
+     * UUID of the card to which the amount is transferred.
+     */
+    private UUID toCardId;
+
+    /**
+     * Amount to transfer.
+     */
+    private BigDecimal amount;
+
+    /**
+     * Reason of the failure, null unless the transfer failed.
+     */
+    private String error;
+}
@@ -2,6 +2,7 @@ package com.example.bankcards.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Formula;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -33,6 +34,13 @@ public class Card {
     @Column(name = "number", nullable = false, length = 19)
     private String number;
 
+    /**
+     * HMAC-SHA256 digest of the card number, unique among cards that are not deleted.
+     * Lets a card be found by its full number with one index probe.
+     */
+    @Column(name = "number_digest", nullable = false, updatable = false)
+    private byte[] numberDigest;
+
     /**
      * Owner of the card.
      */
@@ -59,6 +67,19 @@ public class Card {
     @Column(name = "balance", nullable = false)
     private BigDecimal balance;
 
+    /**
+     * Number of sub-balance rows that receive inbound credits, 0 if the card is not sharded.
+     */
+    @Column(name = "shard_count", nullable = false)
+    private int shardCount;
+
+    /**
+     * Sum of the sub-balance rows not yet consolidated into the main balance, read together with the card.
+     */
+    @Formula("(case when shard_count > 0 then (select coalesce(sum(s.balance), 0) from card_balance_shards s where s.card_id = id) else 0 end)")
+    @Setter(AccessLevel.NONE)
+    private BigDecimal shardBalance;
+
     /**
      * The last 4 digits of the card number.
      */
@@ -84,6 +105,13 @@ public class Card {
         }
     }
 
+    /**
+     * Returns the balance including credits still held in the shards of a sharded card.
+     */
+    public BigDecimal getTotalBalance() {
+        return shardBalance == null ? balance : balance.add(shardBalance);
+    }
+
     /**
      * Returns the masked card number.
      */
@@ -0,0 +1,59 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Represents the stored outcome of a transfer submitted with an Idempotency-Key.
+ * Retries with the same key return this outcome instead of executing the transfer again.
+ */
+@Entity
+@Table(name = "idempotency_keys")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+
+    /** Idempotency key scoped by the username of the caller. */
+    @Id
+    @Column(name = "id", length = 200)
+    private String id;
+
+    /** Username of the user who submitted the request. */
+    @Column(name = "username", nullable = false, length = 64)
+    private String username;
+
+    /** Fingerprint of the request body, used to detect key reuse for a different transfer. */
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    /** UUID of the transfer created by the original request. */
+    @Column(name = "transfer_id", nullable = false, columnDefinition = "uuid")
+    private UUID transferId;
+
+    /** UUID of the source card. */
+    @Column(name = "from_card_id", nullable = false, columnDefinition = "uuid")
+    private UUID fromCardId;
+
+    /** UUID of the target card. */
+    @Column(name = "to_card_id", nullable = false, columnDefinition = "uuid")
+    private UUID toCardId;
+
+    /** Amount transferred. */
+    @Column(name = "amount", nullable = false)
+    private BigDecimal amount;
+
+    /** Timestamp when the key was recorded. */
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    /** Timestamp after which the key may be reused and is removed by the cleanup job. */
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
@@ -0,0 +1,33 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Progress marker of a scheduled job, so that each run only processes what became eligible since the last one.
+ */
+@Entity
+@Table(name = "job_watermarks")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JobWatermark {
+
+    /** Name of the job. */
+    @Id
+    @Column(name = "name", length = 100)
+    private String name;
+
+    /** Date up to which, exclusive, the job has processed everything. */
+    @Column(name = "watermark", nullable = false)
+    private LocalDate watermark;
+
+    /** When the watermark was last advanced. */
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+}
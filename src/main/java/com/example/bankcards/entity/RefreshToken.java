@@ -0,0 +1,59 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Represents a refresh token issued at login or by rotating a previous refresh token.
+ * Only the SHA-256 digest of the token is stored. A token can be used once; reusing a rotated
+ * token revokes its whole family.
+ */
+@Entity
+@Table(name = "refresh_tokens")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RefreshToken {
+
+    /** Unique identifier for the refresh token. */
+    @Id
+    @Column(name = "id", columnDefinition = "uuid")
+    private UUID id;
+
+    /** Hex SHA-256 digest of the token. */
+    @Column(name = "token_hash", nullable = false, unique = true, length = 64)
+    private String tokenHash;
+
+    /** Username of the user the token was issued to. */
+    @Column(name = "username", nullable = false, length = 64)
+    private String username;
+
+    /** Identifier shared by every token rotated from the same login. */
+    @Column(name = "family_id", nullable = false, columnDefinition = "uuid")
+    private UUID familyId;
+
+    /** Identifier (jti) of the access token issued together with this token. */
+    @Column(name = "access_token_id", nullable = false, columnDefinition = "uuid")
+    private UUID accessTokenId;
+
+    /** Expiry of the access token issued together with this token. */
+    @Column(name = "access_expires_at", nullable = false)
+    private Instant accessExpiresAt;
+
+    /** Timestamp when the token was issued. */
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    /** Timestamp after which the token is no longer accepted and is removed by the cleanup job. */
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    /** Timestamp when the token was rotated or revoked, null while it can still be used. */
+    @Column(name = "revoked_at")
+    private Instant revokedAt;
+}
@@ -0,0 +1,34 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Represents an access token revoked before its expiry, identified by its jti.
+ * Rows are only needed until the token expires and are then removed by the cleanup job.
+ */
+@Entity
+@Table(name = "revoked_tokens")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RevokedToken {
+
+    /** Identifier (jti) of the revoked access token. */
+    @Id
+    @Column(name = "id", columnDefinition = "uuid")
+    private UUID id;
+
+    /** Expiry of the revoked access token. */
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    /** Timestamp when the token was revoked, set by the database. */
+    @Column(name = "revoked_at", nullable = false, insertable = false, updatable = false)
+    private Instant revokedAt;
+}
@@ -27,12 +27,12 @@ public class Transfer {
     private UUID id;
 
     /** The from card from which the amount is transferred. */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "from_card_id", nullable = false)
     private Card fromCard;
 
     /** The to card to which the amount is transferred. */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "to_card_id", nullable = false)
     private Card toCard;
 
@@ -51,6 +51,17 @@ public class User {
     @Builder.Default
     private Set<Role> roles = new HashSet<>();
 
+    /**
+     * Version of the user's roles and enabled status, carried in issued tokens.
+     * Bumped by the database whenever either changes; never written by the application.
+     */
+    @Column(name = "security_version", nullable = false, insertable = false, updatable = false)
+    private long securityVersion;
+
+    /** Timestamp of the last security version change. */
+    @Column(name = "security_changed_at", insertable = false, updatable = false)
+    private Instant securityChangedAt;
+
     /** Timestamp when the account was created. */
     @Column(name = "created_at", updatable = false)
     private Instant createdAt;
@@ -2,9 +2,11 @@ package com.example.bankcards.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -57,6 +59,18 @@ public class GlobalExceptionHandler {
         return buildResponse("Validation error(s): " + errors, HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Handles failed logins and refresh tokens that are not accepted.
+     *
+     * @param e AuthenticationException thrown when credentials or a refresh token are not valid
+     * @return HTTP 401 Unauthorized with error details
+     */
+    @ExceptionHandler(AuthenticationException.class)
+    public ResponseEntity<ErrorResponse> handleAuthentication(AuthenticationException e) {
+        logger.warn("Authentication failed: {}", e.getMessage());
+        return buildResponse(e.getMessage(), HttpStatus.UNAUTHORIZED);
+    }
+
     /**
      * Handles access denied exceptions thrown by Spring Security.
      *
@@ -69,6 +83,42 @@ public class GlobalExceptionHandler {
         return buildResponse("Access denied", HttpStatus.FORBIDDEN);
     }
 
+    /**
+     * Handles concurrent update failures that could not be resolved by retrying.
+     *
+     * @param e ConcurrencyFailureException thrown when a transaction keeps conflicting with others
+     * @return HTTP 409 Conflict with a message asking to retry
+     */
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<ErrorResponse> handleConcurrencyFailure(ConcurrencyFailureException e) {
+        logger.warn("Concurrent update conflict: {}", e.getMessage());
+        return buildResponse("Concurrent update conflict, please retry", HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Handles rejected asynchronous transfers when the submission queue is full.
+     *
+     * @param e TransferQueueFullException thrown when there is no room for a new transfer
+     * @return HTTP 429 Too Many Requests with error details
+     */
+    @ExceptionHandler(TransferQueueFullException.class)
+    public ResponseEntity<ErrorResponse> handleQueueFull(TransferQueueFullException e) {
+        logger.warn("Transfer rejected: {}", e.getMessage());
+        return buildResponse(e.getMessage(), HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    /**
+     * Handles logins and registrations rejected because the password hashing workers are saturated.
+     *
+     * @param e PasswordHashingBusyException thrown when a password cannot be hashed in time
+     * @return HTTP 503 Service Unavailable with error details
+     */
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<ErrorResponse> handleHashingBusy(PasswordHashingBusyException e) {
+        logger.warn("Password hashing rejected: {}", e.getMessage());
+        return buildResponse(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     /**
      * Handles all other uncaught exceptions.
      *
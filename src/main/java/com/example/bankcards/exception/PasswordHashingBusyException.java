@@ -0,0 +1,11 @@
+package com.example.bankcards.exception;
+
+/**
+ * Thrown when a password cannot be hashed or checked because the hashing workers are saturated.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.bankcards.exception;
+
+/**
+ * Thrown when an asynchronous transfer cannot be accepted because the submission queue is full.
+ */
+public class TransferQueueFullException extends RuntimeException {
+
+    public TransferQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+
+import java.util.List;
+
+/**
+ * Custom repository fragment for writing cards without entity hydration.
+ */
+public interface CardBatchRepo {
+
+    /**
+     * Inserts the given cards using JDBC batch statements, bypassing the persistence context.
+     * Missing ids, statuses and last digits are assigned before the insert; only the id of the owner is used.
+     * The number digests must already be set.
+     *
+     * @param cards the cards to insert
+     */
+    void batchInsert(List<Card> cards);
+}
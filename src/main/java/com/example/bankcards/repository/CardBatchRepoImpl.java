@@ -0,0 +1,40 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link CardBatchRepo}.
+ * Runs inside the surrounding JPA transaction, sharing its connection.
+ */
+@RequiredArgsConstructor
+public class CardBatchRepoImpl implements CardBatchRepo {
+
+    private static final String INSERT_SQL =
+            "insert into cards (id, user_id, number, number_digest, last4, expiry, status, balance) values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${card.import.jdbc-batch-size:1000}")
+    private int jdbcBatchSize;
+
+    @Override
+    public void batchInsert(List<Card> cards) {
+        cards.forEach(Card::prePersist);
+        jdbcTemplate.batchUpdate(INSERT_SQL, cards, jdbcBatchSize, (ps, card) -> {
+            ps.setObject(1, card.getId());
+            ps.setObject(2, card.getUser().getId());
+            ps.setString(3, card.getNumber());
+            ps.setBytes(4, card.getNumberDigest());
+            ps.setString(5, card.getLast4());
+            ps.setDate(6, Date.valueOf(card.getExpiry()));
+            ps.setString(7, card.getStatus().name());
+            ps.setBigDecimal(8, card.getBalance());
+        });
+    }
+}
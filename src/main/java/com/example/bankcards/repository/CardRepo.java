@@ -1,43 +1,192 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.CardResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
-import com.example.bankcards.entity.User;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 /**
  * Repository interface for managing Card entities.
- * Provides CRUD operations and custom queries to find cards by user and status.
+ * Provides CRUD operations, custom queries to find cards by user and status, a keyset-paginated admin search,
+ * set-based status changes, as well as the statements that maintain the balance shards of hot cards.
  */
-public interface CardRepo extends JpaRepository<Card, UUID> {
+public interface CardRepo extends JpaRepository<Card, UUID>, CardBatchRepo, CardSearchRepo {
+
+    String UNIQUE_VIOLATION = "23505";
+    String NUMBER_DIGEST_INDEX = "uq_cards_number_digest";
 
     /**
-     * Finds all cards with a specific status, paginated.
+     * Finds all cards with a specific status, paginated, as response DTOs.
+     * The owner username is joined in the same query, so no entity or association is loaded.
      *
      * @param status the status to filter by
      * @param pageable pagination information
-     * @return a page of cards with the given status
+     * @return a page of card responses with the given status
+     */
+    @Query(value = """
+            select new com.example.bankcards.dto.CardResponse(
+                c.id, concat('**** **** **** ', c.last4), u.username, c.expiry, c.status, c.balance + c.shardBalance)
+            from Card c join c.user u
+            where c.status = :status
+            """,
+            countQuery = "select count(c) from Card c where c.status = :status")
+    Page<CardResponse> findResponsesByStatus(@Param("status") CardStatus status, Pageable pageable);
+
+    /**
+     * Finds all cards of a user excluding a certain status, paginated, as response DTOs.
+     * The owner username is joined in the same query, so no entity or association is loaded.
+     *
+     * @param username the username of the owner
+     * @param status the status to exclude
+     * @param pageable pagination information
+     * @return a page of card responses for the user excluding the given status
      */
-    Page<Card> findAllByStatus(CardStatus status, Pageable pageable);
+    @Query(value = """
+            select new com.example.bankcards.dto.CardResponse(
+                c.id, concat('**** **** **** ', c.last4), u.username, c.expiry, c.status, c.balance + c.shardBalance)
+            from Card c join c.user u
+            where u.username = :username and c.status <> :status
+            """,
+            countQuery = "select count(c) from Card c join c.user u where u.username = :username and c.status <> :status")
+    Page<CardResponse> findResponsesByUsernameAndStatusNot(@Param("username") String username,
+                                                           @Param("status") CardStatus status,
+                                                           Pageable pageable);
 
     /**
-     * Finds all cards for a user excluding a certain status, paginated.
+     * Finds the versions of the same page of cards as {@link #findResponsesByUsernameAndStatusNot},
+     * so that a client copy of the page can be validated without building the page.
      *
-     * @param user the owner of the cards
+     * @param username the username of the owner
      * @param status the status to exclude
      * @param pageable pagination information
-     * @return a page of cards for the user excluding the given status
+     * @return a page of card versions for the user excluding the given status
+     */
+    @Query(value = """
+            select new com.example.bankcards.repository.CardVersion(c.id, c.version, c.shardBalance)
+            from Card c join c.user u
+            where u.username = :username and c.status <> :status
+            """,
+            countQuery = "select count(c) from Card c join c.user u where u.username = :username and c.status <> :status")
+    Page<CardVersion> findVersionsByUsernameAndStatusNot(@Param("username") String username,
+                                                         @Param("status") CardStatus status,
+                                                         Pageable pageable);
+
+    /**
+     * Finds the cards with the given IDs that are not deleted, as response DTOs, in a single query.
+     * The owner username is joined in the same query, so no entity or association is loaded.
+     *
+     * @param ids the unique identifiers of the cards
+     * @return the card responses found, in no particular order
+     */
+    @Query("""
+            select new com.example.bankcards.dto.CardResponse(
+                c.id, concat('**** **** **** ', c.last4), u.username, c.expiry, c.status, c.balance + c.shardBalance)
+            from Card c join c.user u
+            where c.id in :ids and c.status <> com.example.bankcards.entity.CardStatus.DELETED
+            """)
+    List<CardResponse> findResponsesByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Finds the cards with the given IDs that are not deleted and belong to the given user,
+     * as response DTOs, in a single query.
+     *
+     * @param ids the unique identifiers of the cards
+     * @param username the username of the owner
+     * @return the card responses found, in no particular order
      */
-    Page<Card> findAllByUserAndStatusNot(User user, CardStatus status, Pageable pageable);
+    @Query("""
+            select new com.example.bankcards.dto.CardResponse(
+                c.id, concat('**** **** **** ', c.last4), u.username, c.expiry, c.status, c.balance + c.shardBalance)
+            from Card c join c.user u
+            where c.id in :ids and c.status <> com.example.bankcards.entity.CardStatus.DELETED
+              and u.username = :username
+            """)
+    List<CardResponse> findResponsesByIdInAndUsername(@Param("ids") Collection<UUID> ids,
+                                                      @Param("username") String username);
+
+    /**
+     * Finds a card by its ID together with its owner in a single query.
+     *
+     * @param id the unique identifier of the card
+     * @return an Optional containing the card if found, otherwise empty
+     */
+    @EntityGraph(attributePaths = "user")
+    @Query("select c from Card c where c.id = :id")
+    Optional<Card> findWithUserById(@Param("id") UUID id);
+
+    /**
+     * Finds the card with the given number digest, together with its owner, among cards that are not deleted.
+     * One probe of the unique digest index; the status is a literal so that the partial index matches.
+     *
+     * @param digest the digest of the full card number
+     * @return an Optional containing the card if found, otherwise empty
+     */
+    @EntityGraph(attributePaths = "user")
+    @Query("""
+            select c from Card c
+            where c.numberDigest = :digest and c.status <> com.example.bankcards.entity.CardStatus.DELETED
+            """)
+    Optional<Card> findByNumberDigest(@Param("digest") byte[] digest);
+
+    /**
+     * Checks whether a card that is not deleted has the given number digest.
+     *
+     * @param digest the digest of the full card number
+     * @return true if such a card exists
+     */
+    @Query("""
+            select count(c) > 0 from Card c
+            where c.numberDigest = :digest and c.status <> com.example.bankcards.entity.CardStatus.DELETED
+            """)
+    boolean existsByNumberDigest(@Param("digest") byte[] digest);
+
+    /**
+     * Finds which of the given number digests belong to cards that are not deleted.
+     *
+     * @param digests the digests to look up
+     * @return the digests that are taken
+     */
+    @Query("""
+            select c.numberDigest from Card c
+            where c.numberDigest in :digests and c.status <> com.example.bankcards.entity.CardStatus.DELETED
+            """)
+    List<byte[]> findExistingNumberDigests(@Param("digests") Collection<byte[]> digests);
+
+    /**
+     * Checks whether a failed insert was rejected by the unique index on the number digests of cards
+     * that are not deleted, i.e. whether another transaction committed the same number after it was looked up.
+     *
+     * @param e the failure of the insert
+     * @return true if the number was taken by a concurrent insert
+     */
+    static boolean isNumberTaken(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                for (SQLException next = sqlException; next != null; next = next.getNextException()) {
+                    if (UNIQUE_VIOLATION.equals(next.getSQLState()) && String.valueOf(next.getMessage()).contains(NUMBER_DIGEST_INDEX)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
 
     /**
      * Finds a card by its ID with a pessimistic write lock.
@@ -49,4 +198,211 @@ public interface CardRepo extends JpaRepository<Card, UUID> {
     @Query("select c from Card c where c.id = :id")
     Optional<Card> findByIdForUpdate(@Param("id") UUID id);
 
+    /**
+     * Finds all cards with the given IDs with a pessimistic write lock.
+     * Rows are locked in ascending ID order, which is the canonical card lock order,
+     * so concurrent transfers and batches cannot deadlock each other.
+     *
+     * @param ids the unique identifiers of the cards
+     * @return the cards found, ordered by ID
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id in :ids order by c.id")
+    List<Card> findAllByIdForUpdate(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Debits a card in a single statement if it is active, owned by the given user
+     * and holds at least the requested amount.
+     *
+     * @param id the unique identifier of the card
+     * @param amount the amount to debit
+     * @param username the username of the expected owner
+     * @return the number of updated rows, 0 if any condition did not hold
+     */
+    @Modifying
+    @Query(value = """
+            update cards set balance = balance - :amount, version = version + 1
+            where id = :id
+              and balance >= :amount
+              and status = 'ACTIVE'
+              and user_id = (select u.id from users u where u.username = :username)
+            """, nativeQuery = true)
+    int debitIfAllowed(@Param("id") UUID id, @Param("amount") BigDecimal amount, @Param("username") String username);
+
+    /**
+     * Credits a card in a single statement if it is active.
+     *
+     * @param id the unique identifier of the card
+     * @param amount the amount to credit
+     * @return the number of updated rows, 0 if the card is missing or not active
+     */
+    @Modifying
+    @Query(value = """
+            update cards set balance = balance + :amount, version = version + 1
+            where id = :id
+              and status = 'ACTIVE'
+            """, nativeQuery = true)
+    int creditIfActive(@Param("id") UUID id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Checks whether a card belongs to the user with the given username.
+     *
+     * @param id the unique identifier of the card
+     * @param username the username of the expected owner
+     * @return true if the card exists and is owned by the user
+     */
+    boolean existsByIdAndUserUsername(UUID id, String username);
+
+    /**
+     * Finds a card by its ID with a pessimistic read lock.
+     * Any number of transactions can hold it together, while updates of the card row wait for them.
+     *
+     * @param id the unique identifier of the card
+     * @return an Optional containing the card if found, otherwise empty
+     */
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select c from Card c where c.id = :id")
+    Optional<Card> findByIdForShare(@Param("id") UUID id);
+
+    /**
+     * Finds the number of balance shards of a card.
+     *
+     * @param id the unique identifier of the card
+     * @return an Optional containing the shard count if the card exists, otherwise empty
+     */
+    @Query("select c.shardCount from Card c where c.id = :id")
+    Optional<Integer> findShardCountById(@Param("id") UUID id);
+
+    /**
+     * Credits one balance shard of a card if the card is active.
+     * Only the shard row is locked, so credits to different shards of the same card run in parallel.
+     *
+     * @param id the unique identifier of the card
+     * @param shard the number of the shard
+     * @param amount the amount to credit
+     * @return the number of updated rows, 0 if the card is not active or has no such shard
+     */
+    @Modifying
+    @Query(value = """
+            update card_balance_shards set balance = balance + :amount
+            where card_id = :id
+              and shard = :shard
+              and exists (select 1 from cards c where c.id = :id and c.status = 'ACTIVE')
+            """, nativeQuery = true)
+    int creditShardIfActive(@Param("id") UUID id, @Param("shard") int shard, @Param("amount") BigDecimal amount);
+
+    /**
+     * Resets all balance shards of a card to zero and returns what they held.
+     * The caller is expected to hold the lock on the card row and add the result to its balance.
+     *
+     * @param id the unique identifier of the card
+     * @return the total amount taken from the shards
+     */
+    @Query(value = """
+            with drained as (
+                update card_balance_shards s set balance = 0
+                from (select shard, balance from card_balance_shards
+                      where card_id = :id and balance <> 0
+                      for update) old
+                where s.card_id = :id and s.shard = old.shard
+                returning old.balance
+            )
+            select coalesce(sum(balance), 0) from drained
+            """, nativeQuery = true)
+    BigDecimal drainShards(@Param("id") UUID id);
+
+    /**
+     * Creates the given number of empty balance shards for a card.
+     *
+     * @param id the unique identifier of the card
+     * @param count the number of shards
+     * @return the number of inserted rows
+     */
+    @Modifying
+    @Query(value = """
+            insert into card_balance_shards (card_id, shard, balance)
+            select :id, g, 0 from generate_series(0, :count - 1) g
+            """, nativeQuery = true)
+    int createShards(@Param("id") UUID id, @Param("count") int count);
+
+    /**
+     * Removes all balance shards of a card.
+     *
+     * @param id the unique identifier of the card
+     * @return the number of deleted rows
+     */
+    @Modifying
+    @Query(value = "delete from card_balance_shards where card_id = :id", nativeQuery = true)
+    int deleteShards(@Param("id") UUID id);
+
+    /**
+     * Finds the cards whose shards hold credits not yet consolidated into the main balance.
+     *
+     * @return the unique identifiers of the cards
+     */
+    @Query(value = "select distinct card_id from card_balance_shards where balance <> 0", nativeQuery = true)
+    List<UUID> findIdsWithPendingShardBalance();
+
+    /**
+     * Marks up to the given number of cards that expired in the date range as EXPIRED, in a single statement.
+     * Active and blocked cards are affected; deleted cards are left alone.
+     * The range scan is served by the (expiry, status) index.
+     *
+     * @param from the first expiry date to look at, inclusive
+     * @param today the current date; cards expiring before it are expired
+     * @param limit the maximum number of cards to update
+     * @return the updated cards with the status they had before
+     */
+    @Query(value = """
+            with expired as (
+                update cards c set status = 'EXPIRED', version = c.version + 1
+                from (select id, status from cards
+                      where expiry >= :from and expiry < :today
+                        and status in ('ACTIVE', 'BLOCKED')
+                      order by expiry
+                      limit :limit
+                      for update) due
+                where c.id = due.id
+                returning c.id, due.status as previous_status, c.expiry,
+                          c.balance + coalesce((select sum(s.balance) from card_balance_shards s
+                                                where s.card_id = c.id), 0) as balance
+            )
+            select id as "id", previous_status as "previousStatus", 'EXPIRED' as "status",
+                   expiry as "expiry", balance as "balance"
+            from expired
+            """, nativeQuery = true)
+    List<ChangedCard> expireBefore(@Param("from") LocalDate from, @Param("today") LocalDate today, @Param("limit") int limit);
+
+    /**
+     * Sets the status of the given cards in a single statement.
+     * Deleted cards are left alone, and activated cards whose expiry date has passed become EXPIRED instead.
+     * Rows are locked in ascending ID order, which is the canonical card lock order;
+     * only the cards whose status actually changes are updated.
+     *
+     * @param ids the unique identifiers of the cards
+     * @param status the name of the new status
+     * @param today the current date, used to tell expired cards
+     * @return the updated cards with the status they had before
+     */
+    @Query(value = """
+            with target as (
+                select id, status as previous_status,
+                       case when :status = 'ACTIVE' and expiry < :today then 'EXPIRED' else :status end as status
+                from cards
+                where id = any(:ids) and status <> 'DELETED'
+                order by id
+                for update
+            ), changed as (
+                update cards c set status = t.status, version = c.version + 1
+                from target t
+                where c.id = t.id and t.status <> t.previous_status
+                returning c.id, t.previous_status, c.status, c.expiry,
+                          c.balance + coalesce((select sum(s.balance) from card_balance_shards s
+                                                where s.card_id = c.id), 0) as balance
+            )
+            select id as "id", previous_status as "previousStatus", status as "status",
+                   expiry as "expiry", balance as "balance"
+            from changed
+            """, nativeQuery = true)
+    List<ChangedCard> changeStatus(@Param("ids") UUID[] ids, @Param("status") String status, @Param("today") LocalDate today);
 }
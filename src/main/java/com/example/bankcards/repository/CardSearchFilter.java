@@ -0,0 +1,17 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Filters of the admin card search; null fields are not applied.
+ *
+ * @param status        the card status, or null for every status except DELETED
+ * @param last4         the last 4 digits of the card number
+ * @param owner         the username of the card owner
+ * @param expiryFrom    the earliest expiry date, inclusive
+ * @param expiryTo      the latest expiry date, inclusive
+ */
+public record CardSearchFilter(CardStatus status, String last4, String owner, LocalDate expiryFrom, LocalDate expiryTo) {
+}
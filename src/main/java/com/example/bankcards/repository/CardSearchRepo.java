@@ -0,0 +1,26 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.CardResponse;
+import org.springframework.data.domain.Slice;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Custom repository fragment for the admin card search.
+ */
+public interface CardSearchRepo {
+
+    /**
+     * Finds cards matching the filter that come after the given keyset position, ordered by (expiry, id).
+     * Only the filters that are set become predicates, so each combination is planned against its own index.
+     * Fetches one row more than requested to tell whether there is a next slice; no count query is run.
+     *
+     * @param filter the filters to apply
+     * @param afterExpiry expiry date of the last card already returned, or null for the first slice
+     * @param afterId UUID of the last card already returned, or null for the first slice
+     * @param size the maximum number of cards to return
+     * @return a slice of card responses
+     */
+    Slice<CardResponse> search(CardSearchFilter filter, LocalDate afterExpiry, UUID afterId, int size);
+}
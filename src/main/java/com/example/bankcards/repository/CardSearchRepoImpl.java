@@ -0,0 +1,77 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.entity.CardStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * JPQL implementation of {@link CardSearchRepo}.
+ */
+public class CardSearchRepoImpl implements CardSearchRepo {
+
+    private static final String SELECT = """
+            select new com.example.bankcards.dto.CardResponse(
+                c.id, concat('**** **** **** ', c.last4), u.username, c.expiry, c.status, c.balance + c.shardBalance)
+            from Card c join c.user u
+            where\s""";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<CardResponse> search(CardSearchFilter filter, LocalDate afterExpiry, UUID afterId, int size) {
+        StringBuilder jpql = new StringBuilder(SELECT);
+        Map<String, Object> params = new HashMap<>();
+
+        // The status is written as a literal rather than bound, so that PostgreSQL can match
+        // the partial status indexes even when it reuses a generic plan of the statement.
+        if (filter.status() != null) {
+            jpql.append("c.status = ").append(CardStatus.class.getName()).append('.').append(filter.status().name());
+        } else {
+            jpql.append("c.status <> ").append(CardStatus.class.getName()).append('.').append(CardStatus.DELETED.name());
+        }
+        if (filter.last4() != null) {
+            jpql.append(" and c.last4 = :last4");
+            params.put("last4", filter.last4());
+        }
+        if (filter.owner() != null) {
+            jpql.append(" and u.username = :owner");
+            params.put("owner", filter.owner());
+        }
+        if (filter.expiryFrom() != null) {
+            jpql.append(" and c.expiry >= :expiryFrom");
+            params.put("expiryFrom", filter.expiryFrom());
+        }
+        if (filter.expiryTo() != null) {
+            jpql.append(" and c.expiry <= :expiryTo");
+            params.put("expiryTo", filter.expiryTo());
+        }
+        if (afterExpiry != null) {
+            // A row-value comparison is an index condition on (expiry, id), so the scan starts right after
+            // the previous slice even when many cards share one expiry date.
+            jpql.append(" and (c.expiry, c.id) > (:afterExpiry, :afterId)");
+            params.put("afterExpiry", afterExpiry);
+            params.put("afterId", afterId);
+        }
+        jpql.append(" order by c.expiry, c.id");
+
+        TypedQuery<CardResponse> query = entityManager.createQuery(jpql.toString(), CardResponse.class)
+                .setMaxResults(size + 1);
+        params.forEach(query::setParameter);
+
+        List<CardResponse> rows = query.getResultList();
+        boolean hasNext = rows.size() > size;
+        return new SliceImpl<>(hasNext ? rows.subList(0, size) : rows, PageRequest.ofSize(size), hasNext);
+    }
+}
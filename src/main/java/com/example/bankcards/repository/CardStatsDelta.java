@@ -0,0 +1,17 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Change to the card counters of one status and expiry month.
+ *
+ * @param status  the card status
+ * @param expiry  the expiry date of the cards; only its month is used, and only when the count changes
+ * @param count   the change in the number of cards
+ * @param balance the change in the total balance of the cards
+ */
+public record CardStatsDelta(CardStatus status, LocalDate expiry, long count, BigDecimal balance) {
+}
@@ -0,0 +1,174 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * JDBC repository for the card counters shown on the admin dashboard.
+ * Card counts are kept per status and expiry month, so that counts by status as well as the cards expiring
+ * in a month are read from a few hundred rows instead of aggregating all cards. Total balances are kept per
+ * status only: transfers move balance between active cards of any expiry month and leave these totals alone.
+ * Writes run inside the surrounding JPA transaction, sharing its connection.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CardStatsRepo {
+
+    private static final String UPSERT_COUNT_SQL = """
+            insert into card_stats (status, expiry_month, card_count) values (?, ?, ?)
+            on conflict (status, expiry_month) do update
+                set card_count = card_stats.card_count + excluded.card_count
+            """;
+
+    private static final String UPSERT_BALANCE_SQL = """
+            insert into card_status_balances (status, total_balance) values (?, ?)
+            on conflict (status) do update
+                set total_balance = card_status_balances.total_balance + excluded.total_balance
+            """;
+
+    private static final String SELECT_COUNTS_SQL = "select status, expiry_month, card_count from card_stats";
+
+    private static final String SELECT_BALANCES_SQL = "select status, total_balance from card_status_balances";
+
+    // Both sides are read in one statement, so the differences hold at a single point in time.
+    private static final String DRIFT_SQL = """
+            with actual as (
+                select c.status, date_trunc('month', c.expiry)::date as expiry_month, count(*) as card_count,
+                       sum(c.balance + coalesce(s.balance, 0)) as total_balance
+                from cards c
+                left join (select card_id, sum(balance) as balance from card_balance_shards group by card_id) s
+                       on s.card_id = c.id
+                group by 1, 2
+            ),
+            actual_balances as (
+                select status, sum(total_balance) as total_balance from actual group by status
+            )
+            select coalesce(a.status, t.status), coalesce(a.expiry_month, t.expiry_month),
+                   coalesce(a.card_count, 0) - coalesce(t.card_count, 0), 0
+            from actual a
+            full join card_stats t on t.status = a.status and t.expiry_month = a.expiry_month
+            where coalesce(a.card_count, 0) <> coalesce(t.card_count, 0)
+            union all
+            select coalesce(a.status, b.status), null, 0,
+                   coalesce(a.total_balance, 0) - coalesce(b.total_balance, 0)
+            from actual_balances a
+            full join card_status_balances b on b.status = a.status
+            where coalesce(a.total_balance, 0) <> coalesce(b.total_balance, 0)
+            """;
+
+    private static final String DELETE_EMPTY_SQL = "delete from card_stats where card_count = 0";
+
+    private static final Comparator<Key> KEY_ORDER = Comparator
+            .comparing((Key key) -> key.status().name())
+            .thenComparing(Key::month);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds the given changes to the counters, merging changes to the same status and month first.
+     * Count rows and then balance rows are updated in a fixed order, so concurrent writers cannot deadlock
+     * on them.
+     *
+     * @param deltas the changes to apply
+     */
+    public void apply(List<CardStatsDelta> deltas) {
+        Map<Key, Long> counts = new TreeMap<>(KEY_ORDER);
+        Map<CardStatus, BigDecimal> balances = new EnumMap<>(CardStatus.class);
+        for (CardStatsDelta delta : deltas) {
+            if (delta.count() != 0) {
+                counts.merge(new Key(delta.status(), delta.expiry().withDayOfMonth(1)), delta.count(), Long::sum);
+            }
+            if (delta.balance().signum() != 0) {
+                balances.merge(delta.status(), delta.balance(), BigDecimal::add);
+            }
+        }
+        List<Object[]> countRows = new ArrayList<>(counts.size());
+        counts.forEach((key, count) -> {
+            if (count != 0) {
+                countRows.add(new Object[]{key.status().name(), Date.valueOf(key.month()), count});
+            }
+        });
+        List<Object[]> balanceRows = new ArrayList<>(balances.size());
+        balances.forEach((status, balance) -> {
+            if (balance.signum() != 0) {
+                balanceRows.add(new Object[]{status.name(), balance});
+            }
+        });
+        if (!countRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_COUNT_SQL, countRows);
+        }
+        if (!balanceRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_BALANCE_SQL, balanceRows);
+        }
+    }
+
+    /**
+     * Reads the card counts.
+     *
+     * @return one entry per status and expiry month, with a zero balance; the expiry of each entry is
+     * the first day of its month
+     */
+    public List<CardStatsDelta> findCounts() {
+        return jdbcTemplate.query(SELECT_COUNTS_SQL, (rs, rowNum) -> new CardStatsDelta(
+                CardStatus.valueOf(rs.getString(1)),
+                rs.getDate(2).toLocalDate(),
+                rs.getLong(3),
+                BigDecimal.ZERO));
+    }
+
+    /**
+     * Reads the total balances.
+     *
+     * @return the total balance of the cards of each status that has a row
+     */
+    public Map<CardStatus, BigDecimal> findBalances() {
+        Map<CardStatus, BigDecimal> balances = new EnumMap<>(CardStatus.class);
+        jdbcTemplate.query(SELECT_BALANCES_SQL, rs -> {
+            balances.put(CardStatus.valueOf(rs.getString(1)), rs.getBigDecimal(2));
+        });
+        return balances;
+    }
+
+    /**
+     * Compares the counters with the cards, without locking either.
+     * The result is the difference at the moment the statement started: applied with {@link #apply},
+     * it corrects the drift while keeping the changes committed since, which updated both sides.
+     *
+     * @return the changes that bring the counters in line with the cards; count changes carry the
+     * expiry month, balance changes have a zero count and no expiry
+     */
+    public List<CardStatsDelta> findDrift() {
+        return jdbcTemplate.query(DRIFT_SQL, (rs, rowNum) -> {
+            Date month = rs.getDate(2);
+            return new CardStatsDelta(
+                    CardStatus.valueOf(rs.getString(1)),
+                    month == null ? null : month.toLocalDate(),
+                    rs.getLong(3),
+                    rs.getBigDecimal(4));
+        });
+    }
+
+    /**
+     * Removes the count rows of status and expiry month pairs without cards.
+     *
+     * @return the number of rows removed
+     */
+    public int deleteEmpty() {
+        return jdbcTemplate.update(DELETE_EMPTY_SQL);
+    }
+
+    private record Key(CardStatus status, LocalDate month) {
+    }
+}
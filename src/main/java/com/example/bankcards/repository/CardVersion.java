@@ -0,0 +1,14 @@
+package com.example.bankcards.repository;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Version of a card, read without its owner or any other field, to tell whether a client copy is current.
+ *
+ * @param id           the UUID of the card
+ * @param version      the optimistic locking version of the card
+ * @param shardBalance credits held in the balance shards, which change without a version change
+ */
+public record CardVersion(UUID id, Long version, BigDecimal shardBalance) {
+}
@@ -0,0 +1,29 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.CardStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Projection of a card whose status was changed by a set-based update,
+ * such as {@link CardRepo#expireBefore} or {@link CardRepo#changeStatus}.
+ */
+public interface ChangedCard {
+
+    /** Unique identifier of the card. */
+    UUID getId();
+
+    /** Status of the card before the update. */
+    CardStatus getPreviousStatus();
+
+    /** Status of the card after the update. */
+    CardStatus getStatus();
+
+    /** Expiry date of the card. */
+    LocalDate getExpiry();
+
+    /** Balance of the card including its balance shards. */
+    BigDecimal getBalance();
+}
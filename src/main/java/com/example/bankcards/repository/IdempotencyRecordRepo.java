@@ -0,0 +1,61 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Repository interface for managing IdempotencyRecord entities.
+ * Provides an insert that never overwrites a live key and TTL-based cleanup.
+ */
+public interface IdempotencyRecordRepo extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Inserts an idempotency record, replacing an existing one only if it has already expired.
+     *
+     * @return the number of written rows, 0 if a live record with the same id exists
+     */
+    @Modifying
+    @Query(value = """
+            insert into idempotency_keys
+                (id, username, request_hash, transfer_id, from_card_id, to_card_id, amount, created_at, expires_at)
+            values (:id, :username, :requestHash, :transferId, :fromCardId, :toCardId, :amount, :createdAt, :expiresAt)
+            on conflict (id) do update set
+                username = excluded.username,
+                request_hash = excluded.request_hash,
+                transfer_id = excluded.transfer_id,
+                from_card_id = excluded.from_card_id,
+                to_card_id = excluded.to_card_id,
+                amount = excluded.amount,
+                created_at = excluded.created_at,
+                expires_at = excluded.expires_at
+            where idempotency_keys.expires_at < excluded.created_at
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("id") String id,
+                       @Param("username") String username,
+                       @Param("requestHash") String requestHash,
+                       @Param("transferId") UUID transferId,
+                       @Param("fromCardId") UUID fromCardId,
+                       @Param("toCardId") UUID toCardId,
+                       @Param("amount") BigDecimal amount,
+                       @Param("createdAt") Instant createdAt,
+                       @Param("expiresAt") Instant expiresAt);
+
+    /**
+     * Deletes all records that expired before the given instant.
+     *
+     * @param now the current instant
+     * @return the number of deleted records
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
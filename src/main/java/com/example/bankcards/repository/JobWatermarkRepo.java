@@ -0,0 +1,10 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.JobWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Repository interface for managing JobWatermark entities.
+ */
+public interface JobWatermarkRepo extends JpaRepository<JobWatermark, String> {
+}
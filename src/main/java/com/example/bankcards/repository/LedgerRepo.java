@@ -0,0 +1,126 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transfer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * JDBC repository for the append-only ledger.
+ * Every transfer is recorded as one DEBIT posting on the source card and one CREDIT posting
+ * on the target card, so the deltas of a transfer always sum to zero.
+ * Postings are never updated; balances are read as the latest per-card snapshot plus the deltas after it.
+ * Each posting records the id of the transaction that wrote it, which orders it against the snapshots.
+ * Writes run inside the surrounding JPA transaction, sharing its connection.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LedgerRepo {
+
+    private static final String INSERT_SQL =
+            "insert into ledger_postings (card_id, transfer_id, entry_type, delta) values (?, ?, ?, ?)";
+
+    private static final String BALANCE_SQL = """
+            with snapshot as (select balance, last_xid from card_balance_snapshots where card_id = ?)
+            select coalesce((select balance from snapshot), 0)
+                 + coalesce((select sum(p.delta) from ledger_postings p
+                             where p.card_id = ?
+                               and p.xid >= coalesce((select last_xid from snapshot), '0'::xid8)), 0)
+            """;
+
+    // Transactions below the horizon have all finished, so no posting below it can still appear.
+    // Every posting below the highest last_xid is already folded, which bounds the scan from below.
+    private static final String SNAPSHOT_SQL = """
+            with horizon as (select pg_snapshot_xmin(pg_current_snapshot()) as xid),
+                 folded as (select coalesce(max(last_xid), '0'::xid8) as xid from card_balance_snapshots)
+            insert into card_balance_snapshots (card_id, balance, last_xid, taken_at)
+            select p.card_id, coalesce(s.balance, 0) + sum(p.delta), (select xid from horizon), now()
+            from ledger_postings p
+            left join card_balance_snapshots s on s.card_id = p.card_id
+            where p.xid >= (select xid from folded)
+              and p.xid < (select xid from horizon)
+              and p.xid >= coalesce(s.last_xid, '0'::xid8)
+            group by p.card_id, s.balance
+            on conflict (card_id) do update
+                set balance = excluded.balance, last_xid = excluded.last_xid, taken_at = excluded.taken_at
+                where card_balance_snapshots.last_xid < excluded.last_xid
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${transfer.batch.jdbc-batch-size:500}")
+    private int jdbcBatchSize;
+
+    /**
+     * Records the DEBIT and CREDIT postings of the given transfers with JDBC batch statements.
+     * The transfers must already have their ids assigned.
+     *
+     * @param transfers the transfers to record
+     */
+    public void postTransfers(List<Transfer> transfers) {
+        List<Object[]> rows = new ArrayList<>(transfers.size() * 2);
+        for (Transfer transfer : transfers) {
+            rows.add(new Object[]{transfer.getFromCard().getId(), transfer.getId(), "DEBIT", transfer.getAmount().negate()});
+            rows.add(new Object[]{transfer.getToCard().getId(), transfer.getId(), "CREDIT", transfer.getAmount()});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, jdbcBatchSize, (ps, row) -> {
+            for (int i = 0; i < row.length; i++) {
+                ps.setObject(i + 1, row[i]);
+            }
+        });
+    }
+
+    /**
+     * Records the opening balance of a new card.
+     *
+     * @param cardId the UUID of the card
+     * @param amount the initial balance
+     */
+    public void postOpening(UUID cardId, BigDecimal amount) {
+        jdbcTemplate.update(INSERT_SQL, cardId, null, "OPENING", amount);
+    }
+
+    /**
+     * Records the opening balances of new cards with JDBC batch statements.
+     * The cards must already have their ids assigned.
+     *
+     * @param cards the new cards
+     */
+    public void postOpenings(List<Card> cards) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, cards, jdbcBatchSize, (ps, card) -> {
+            ps.setObject(1, card.getId());
+            ps.setNull(2, Types.OTHER);
+            ps.setString(3, "OPENING");
+            ps.setBigDecimal(4, card.getBalance());
+        });
+    }
+
+    /**
+     * Computes the ledger balance of a card as its latest snapshot plus all deltas posted after it.
+     *
+     * @param cardId the UUID of the card
+     * @return the ledger balance, zero for a card without postings
+     */
+    public BigDecimal balance(UUID cardId) {
+        return jdbcTemplate.queryForObject(BALANCE_SQL, BigDecimal.class, cardId, cardId);
+    }
+
+    /**
+     * Advances the snapshot of every card with postings written by transactions older than the oldest
+     * one still in flight, in a single statement. A posting whose transaction commits late is above
+     * that horizon until it commits, so it is folded by a later call and never skipped.
+     *
+     * @return the number of snapshots written
+     */
+    public int takeSnapshots() {
+        return jdbcTemplate.update(SNAPSHOT_SQL);
+    }
+}
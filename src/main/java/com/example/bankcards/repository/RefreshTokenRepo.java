@@ -0,0 +1,80 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.RefreshToken;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Repository interface for managing RefreshToken entities.
+ * Provides lookup by token digest, revocation of a token family and TTL-based cleanup.
+ */
+public interface RefreshTokenRepo extends JpaRepository<RefreshToken, UUID> {
+
+    /**
+     * Finds a refresh token by the digest of its value and locks it, so that concurrent rotations
+     * of the same token are serialized.
+     *
+     * @param tokenHash the hex SHA-256 digest of the token
+     * @return an Optional containing the RefreshToken if found, or empty otherwise
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    /**
+     * Finds the tokens of a family whose access token has not expired yet.
+     *
+     * @param familyId the family of refresh tokens
+     * @param now the current instant
+     * @return the tokens found, in no particular order
+     */
+    List<RefreshToken> findByFamilyIdAndAccessExpiresAtAfter(UUID familyId, Instant now);
+
+    /**
+     * Records the access tokens of a family that have not expired yet as revoked.
+     *
+     * @param familyId the family of refresh tokens
+     * @return the number of newly revoked access tokens
+     */
+    @Modifying
+    @Query(value = """
+            insert into revoked_tokens (id, expires_at, revoked_at)
+            select t.access_token_id, t.access_expires_at, now()
+            from refresh_tokens t
+            where t.family_id = :familyId
+              and t.access_expires_at > now()
+            on conflict (id) do nothing
+            """, nativeQuery = true)
+    int revokeAccessTokens(@Param("familyId") UUID familyId);
+
+    /**
+     * Revokes every refresh token of a family that is still usable.
+     *
+     * @param familyId the family of refresh tokens
+     * @param now the current instant
+     * @return the number of revoked refresh tokens
+     */
+    @Modifying
+    @Query("update RefreshToken t set t.revokedAt = :now where t.familyId = :familyId and t.revokedAt is null")
+    int revokeFamily(@Param("familyId") UUID familyId, @Param("now") Instant now);
+
+    /**
+     * Deletes all refresh tokens that expired before the given instant.
+     *
+     * @param now the current instant
+     * @return the number of deleted tokens
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from RefreshToken t where t.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
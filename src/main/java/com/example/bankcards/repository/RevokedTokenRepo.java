@@ -0,0 +1,53 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository interface for managing RevokedToken entities.
+ * Rows are written by {@link RefreshTokenRepo#revokeAccessTokens} and read incrementally by the revocation table.
+ */
+public interface RevokedTokenRepo extends JpaRepository<RevokedToken, UUID> {
+
+    /**
+     * Finds the oldest transaction still in flight. Every revocation written by an older transaction
+     * has committed or rolled back, so a read started afterwards sees all of them.
+     *
+     * @return the transaction id below which no revocation can still appear
+     */
+    @Query(value = "select cast(cast(pg_snapshot_xmin(pg_current_snapshot()) as text) as bigint)", nativeQuery = true)
+    long findCommitHorizon();
+
+    /**
+     * Finds the access tokens revoked by transactions at or above the given horizon that have not expired yet.
+     * The scan is served by the xid index.
+     *
+     * @param horizon a horizon returned by {@link #findCommitHorizon()}, or 0 to read every revocation
+     * @param now the current instant
+     * @return the revoked tokens, in no particular order
+     */
+    @Query(value = """
+            select * from revoked_tokens t
+            where t.xid >= cast(cast(:horizon as text) as xid8) and t.expires_at > :now
+            """, nativeQuery = true)
+    List<RevokedToken> findRevokedSince(@Param("horizon") long horizon, @Param("now") Instant now);
+
+    /**
+     * Deletes all revoked tokens that expired before the given instant, since they are rejected anyway.
+     *
+     * @param now the current instant
+     * @return the number of deleted rows
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from RevokedToken t where t.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
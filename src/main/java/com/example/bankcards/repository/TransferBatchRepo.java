@@ -0,0 +1,27 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Transfer;
+
+import java.util.List;
+
+/**
+ * Custom repository fragment for writing transfers without entity hydration.
+ */
+public interface TransferBatchRepo {
+
+    /**
+     * Inserts the given transfers using JDBC batch statements, bypassing the persistence context.
+     * Missing ids and creation timestamps are assigned before the insert.
+     *
+     * @param transfers the transfers to insert
+     */
+    void batchInsert(List<Transfer> transfers);
+
+    /**
+     * Inserts a single transfer with a plain JDBC statement, bypassing the persistence context.
+     * A missing id and creation timestamp are assigned before the insert.
+     *
+     * @param transfer the transfer to insert
+     */
+    void insert(Transfer transfer);
+}
@@ -0,0 +1,48 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Transfer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link TransferBatchRepo}.
+ * Runs inside the surrounding JPA transaction, sharing its connection.
+ */
+@RequiredArgsConstructor
+public class TransferBatchRepoImpl implements TransferBatchRepo {
+
+    private static final String INSERT_SQL =
+            "insert into transfers (id, from_card_id, to_card_id, amount, created_at) values (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${transfer.batch.jdbc-batch-size:500}")
+    private int jdbcBatchSize;
+
+    @Override
+    public void batchInsert(List<Transfer> transfers) {
+        transfers.forEach(Transfer::prePersist);
+        jdbcTemplate.batchUpdate(INSERT_SQL, transfers, jdbcBatchSize, (ps, transfer) -> {
+            ps.setObject(1, transfer.getId());
+            ps.setObject(2, transfer.getFromCard().getId());
+            ps.setObject(3, transfer.getToCard().getId());
+            ps.setBigDecimal(4, transfer.getAmount());
+            ps.setTimestamp(5, Timestamp.from(transfer.getCreatedAt()));
+        });
+    }
+
+    @Override
+    public void insert(Transfer transfer) {
+        transfer.prePersist();
+        jdbcTemplate.update(INSERT_SQL,
+                transfer.getId(),
+                transfer.getFromCard().getId(),
+                transfer.getToCard().getId(),
+                transfer.getAmount(),
+                Timestamp.from(transfer.getCreatedAt()));
+    }
+}
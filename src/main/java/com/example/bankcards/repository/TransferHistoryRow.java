@@ -0,0 +1,26 @@
+package com.example.bankcards.repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Projection of a transfer read by a native history query, such as {@link TransferRepo#streamRowsByCard}.
+ */
+public interface TransferHistoryRow {
+
+    /** UUID of the transfer. */
+    UUID getId();
+
+    /** UUID of the card from which the amount was transferred. */
+    UUID getFromCardId();
+
+    /** UUID of the card to which the amount was transferred. */
+    UUID getToCardId();
+
+    /** Amount transferred. */
+    BigDecimal getAmount();
+
+    /** Timestamp when the transfer was created. */
+    Instant getCreatedAt();
+}
@@ -1,13 +1,114 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.TransferHistoryItem;
 import com.example.bankcards.entity.Transfer;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for managing Transfer entities.
- * Provides standard CRUD operations for transfers between cards.
+ * Provides standard CRUD operations for transfers between cards, JDBC batch inserts
+ * keyset-paginated history queries and a streaming statement query.
  */
-public interface TransferRepo extends JpaRepository<Transfer, UUID> {
+public interface TransferRepo extends JpaRepository<Transfer, UUID>, TransferBatchRepo {
+
+    /**
+     * Finds transfers sent from a card that are older than the given keyset position, newest first.
+     * Served by the (from_card_id, created_at, id) index, so the cost does not depend on the page depth.
+     *
+     * @param cardId the UUID of the source card
+     * @param createdAt creation timestamp of the last transfer already returned
+     * @param id UUID of the last transfer already returned
+     * @param pageable the maximum number of transfers to return
+     * @return a list of transfer projections
+     */
+    @Query("""
+            select new com.example.bankcards.dto.TransferHistoryItem(t.id, t.fromCard.id, t.toCard.id, t.amount, t.createdAt)
+            from Transfer t
+            where t.fromCard.id = :cardId
+              and t.createdAt <= :createdAt
+              and (t.createdAt < :createdAt or t.id < :id)
+            order by t.createdAt desc, t.id desc
+            """)
+    List<TransferHistoryItem> findOutgoingBefore(@Param("cardId") UUID cardId,
+                                                 @Param("createdAt") Instant createdAt,
+                                                 @Param("id") UUID id,
+                                                 Pageable pageable);
+
+    /**
+     * Finds transfers received by a card that are older than the given keyset position, newest first.
+     * Served by the (to_card_id, created_at, id) index, so the cost does not depend on the page depth.
+     *
+     * @param cardId the UUID of the target card
+     * @param createdAt creation timestamp of the last transfer already returned
+     * @param id UUID of the last transfer already returned
+     * @param pageable the maximum number of transfers to return
+     * @return a list of transfer projections
+     */
+    @Query("""
+            select new com.example.bankcards.dto.TransferHistoryItem(t.id, t.fromCard.id, t.toCard.id, t.amount, t.createdAt)
+            from Transfer t
+            where t.toCard.id = :cardId
+              and t.createdAt <= :createdAt
+              and (t.createdAt < :createdAt or t.id < :id)
+            order by t.createdAt desc, t.id desc
+            """)
+    List<TransferHistoryItem> findIncomingBefore(@Param("cardId") UUID cardId,
+                                                 @Param("createdAt") Instant createdAt,
+                                                 @Param("id") UUID id,
+                                                 Pageable pageable);
+
+    /**
+     * Streams all transfers sent or received by a card, oldest first.
+     * Rows are fetched from a database cursor in chunks, so the caller must consume the stream
+     * inside a transaction and close it when done.
+     *
+     * @param cardId the UUID of the card
+     * @return a stream of transfer projections
+     */
+    default Stream<TransferHistoryItem> streamByCard(UUID cardId) {
+        return streamRowsByCard(cardId).map(row -> new TransferHistoryItem(
+                row.getId(), row.getFromCardId(), row.getToCardId(), row.getAmount(), row.getCreatedAt()));
+    }
+
+    /**
+     * Streams all transfers sent or received by a card, oldest first, as rows of a native query.
+     * The sent and received branches each walk their (card, created_at, id) index in order and are merged,
+     * so rows are sent as they are read instead of after sorting the whole history.
+     * Each branch is ordered inside its own parentheses, since PostgreSQL does not merge ordered branches
+     * of a UNION ALL otherwise. Transfers from a card to itself are only read by the sent branch.
+     *
+     * @param cardId the UUID of the card
+     * @return a stream of transfer rows
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = """
+            select h.id as "id", h.from_card_id as "fromCardId", h.to_card_id as "toCardId",
+                   h.amount as "amount", h.created_at as "createdAt"
+            from ((select t.id, t.from_card_id, t.to_card_id, t.amount, t.created_at
+                   from transfers t
+                   where t.from_card_id = :cardId
+                   order by t.created_at, t.id)
+                  union all
+                  (select t.id, t.from_card_id, t.to_card_id, t.amount, t.created_at
+                   from transfers t
+                   where t.to_card_id = :cardId
+                     and t.from_card_id <> :cardId
+                   order by t.created_at, t.id)) h
+            order by h.created_at, h.id
+            """, nativeQuery = true)
+    Stream<TransferHistoryRow> streamRowsByCard(@Param("cardId") UUID cardId);
 }
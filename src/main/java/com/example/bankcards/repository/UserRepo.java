@@ -3,7 +3,13 @@ package com.example.bankcards.repository;
 import com.example.bankcards.entity.User;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -21,4 +27,77 @@ public interface UserRepo extends JpaRepository<User, UUID> {
      */
     @EntityGraph(attributePaths = "roles")
     Optional<User> findByUsername(String username);
+
+    /**
+     * Finds all users with the given usernames in one query, without their roles.
+     *
+     * @param usernames the usernames to look up
+     * @return the users found, in no particular order
+     */
+    List<User> findAllByUsernameIn(Collection<String> usernames);
+
+    /**
+     * Finds the security state of every user whose roles or enabled status changed after the given instant.
+     * The scan is served by the security_changed_at index.
+     *
+     * @param since the instant to look after
+     * @return the security states, in no particular order
+     */
+    @Query("""
+            select new com.example.bankcards.repository.UserSecurityState(
+                u.username, u.securityVersion, u.enabled, u.securityChangedAt)
+            from User u
+            where u.securityChangedAt > :since
+            """)
+    List<UserSecurityState> findSecurityStatesChangedSince(@Param("since") Instant since);
+
+    /**
+     * Finds the oldest transaction still in flight. Every security change made by an older transaction
+     * has committed or rolled back, so a read started afterwards sees all of them.
+     *
+     * @return the transaction id below which no security change can still appear
+     */
+    @Query(value = "select cast(cast(pg_snapshot_xmin(pg_current_snapshot()) as text) as bigint)", nativeQuery = true)
+    long findCommitHorizon();
+
+    /**
+     * Finds the security state of every user whose roles or enabled status were changed by a transaction
+     * at or above the given horizon.
+     *
+     * @param horizon a horizon returned by {@link #findCommitHorizon()}
+     * @return the security states, in no particular order
+     */
+    default List<UserSecurityState> findSecurityStatesChangedSince(long horizon) {
+        return findSecurityRowsChangedSince(horizon).stream()
+                .map(row -> new UserSecurityState(
+                        row.getUsername(), row.getSecurityVersion(), row.getEnabled(), row.getChangedAt()))
+                .toList();
+    }
+
+    /**
+     * Finds the security state of every user changed by a transaction at or above the given horizon,
+     * as rows of a native query. The scan is served by the security_xid index.
+     *
+     * @param horizon a horizon returned by {@link #findCommitHorizon()}
+     * @return the rows, in no particular order
+     */
+    @Query(value = """
+            select u.username as "username", u.security_version as "securityVersion", u.enabled as "enabled",
+                   u.security_changed_at as "changedAt"
+            from users u
+            where u.security_xid >= cast(cast(:horizon as text) as xid8)
+            """, nativeQuery = true)
+    List<UserSecurityRow> findSecurityRowsChangedSince(@Param("horizon") long horizon);
+
+    /**
+     * Replaces the password hash of a user. Does not change their security version,
+     * so tokens issued before stay valid.
+     *
+     * @param username the username of the user
+     * @param password the new password hash
+     * @return the number of updated rows, 0 if the user does not exist
+     */
+    @Modifying
+    @Query("update User u set u.password = :password where u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password);
 }
@@ -0,0 +1,22 @@
+package com.example.bankcards.repository;
+
+import java.time.Instant;
+
+/**
+ * Projection of the security state of a user read by a native query, such as
+ * {@link UserRepo#findSecurityRowsChangedSince}.
+ */
+public interface UserSecurityRow {
+
+    /** Username of the user. */
+    String getUsername();
+
+    /** Version of the user's roles and enabled status. */
+    long getSecurityVersion();
+
+    /** Whether the account is enabled. */
+    boolean getEnabled();
+
+    /** When the security version last changed. */
+    Instant getChangedAt();
+}
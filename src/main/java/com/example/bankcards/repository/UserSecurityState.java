@@ -0,0 +1,14 @@
+package com.example.bankcards.repository;
+
+import java.time.Instant;
+
+/**
+ * Security state of a user, read without the user's roles or credentials, to tell whether issued tokens still hold.
+ *
+ * @param username        the username of the user
+ * @param securityVersion the version of the user's roles and enabled status
+ * @param enabled         whether the account is enabled
+ * @param changedAt       when the security version last changed
+ */
+public record UserSecurityState(String username, long securityVersion, boolean enabled, Instant changedAt) {
+}
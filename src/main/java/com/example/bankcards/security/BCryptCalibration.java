@@ -0,0 +1,55 @@
+package com.example.bankcards.security;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.time.Duration;
+
+/**
+ * Picks the BCrypt cost whose hashing time on this machine comes closest to a target latency without exceeding it.
+ * One hash is timed at a low cost and the result is scaled, since every extra unit of cost doubles the work.
+ */
+final class BCryptCalibration {
+
+    static final int MIN_STRENGTH = 10;
+    static final int MAX_STRENGTH = 16;
+
+    private static final int PROBE_STRENGTH = 8;
+    private static final int PROBE_ROUNDS = 3;
+
+    private BCryptCalibration() {
+    }
+
+    /**
+     * Measures this machine and returns the cost it recommends.
+     *
+     * @param targetLatency the longest time a single hash should take
+     * @return the cost, between {@link #MIN_STRENGTH} and {@link #MAX_STRENGTH}
+     */
+    static int strengthFor(Duration targetLatency) {
+        String salt = BCrypt.gensalt(PROBE_STRENGTH);
+        BCrypt.hashpw("calibration", salt);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < PROBE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return strengthFor(targetLatency, Duration.ofNanos(best));
+    }
+
+    /**
+     * Scales the time of a hash at the probe cost up to the target latency.
+     *
+     * @param targetLatency the longest time a single hash should take
+     * @param probeTime     the time of one hash at the probe cost
+     * @return the cost, between {@link #MIN_STRENGTH} and {@link #MAX_STRENGTH}
+     */
+    static int strengthFor(Duration targetLatency, Duration probeTime) {
+        long probeNanos = Math.max(probeTime.toNanos(), 1);
+        int strength = PROBE_STRENGTH;
+        while (strength < MAX_STRENGTH && probeNanos << (strength + 1 - PROBE_STRENGTH) <= targetLatency.toNanos()) {
+            strength++;
+        }
+        return Math.max(strength, MIN_STRENGTH);
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Password encoder that hashes and checks passwords with BCrypt on a small dedicated pool of workers,
+ * so that a burst of logins cannot take every CPU away from the other requests.
+ * Callers wait for their hash; when every worker is busy and the queue is full, or a hash is not done
+ * within the timeout, the call fails with {@link PasswordHashingBusyException} instead of queueing further.
+ * <p>
+ * The BCrypt cost is configured, so that every instance hashes with the same one. Calibration against a target
+ * latency is opt-in and only logs the cost this machine would need; raising the cost stays a fleet-wide decision.
+ * New hashes are stored as {@code {bcrypt}...}; hashes without an id prefix are still checked as BCrypt.
+ * {@link #upgradeEncoding} reports hashes with another id or a lower cost than the configured one, so that they
+ * are rehashed after a successful login; hashes are never upgraded past the configured cost.
+ */
+@Component
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+
+    private static final String BCRYPT_ID = "bcrypt";
+
+    private final PasswordEncoder delegate;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+
+    @Autowired
+    public BoundedPasswordEncoder(MeterRegistry meterRegistry,
+                                  @Value("${auth.password.bcrypt.strength:10}") int strength,
+                                  @Value("${auth.password.bcrypt.calibrate:false}") boolean calibrate,
+                                  @Value("${auth.password.bcrypt.target-latency:250ms}") Duration targetLatency,
+                                  @Value("${auth.password.workers:0}") int workers,
+                                  @Value("${auth.password.queue-capacity:64}") int queueCapacity,
+                                  @Value("${auth.password.timeout:5s}") Duration timeout) {
+        this(bcrypt(strength), meterRegistry,
+                workers > 0 ? workers : Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+                queueCapacity, timeout);
+        if (calibrate) {
+            logCalibration(strength, targetLatency);
+        }
+    }
+
+    BoundedPasswordEncoder(PasswordEncoder delegate, MeterRegistry meterRegistry,
+                           int workers, int queueCapacity, Duration timeout) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.timeout = timeout;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hash-"));
+        meterRegistry.gauge("auth.password.queue.size", executor.getQueue(), BlockingQueue::size);
+    }
+
+    /**
+     * Stops the hashing workers.
+     */
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T submit(Supplier<T> hashing) {
+        Future<T> future;
+        try {
+            future = executor.submit(hashing::get);
+        } catch (RejectedExecutionException ex) {
+            meterRegistry.counter("auth.password.rejected").increment();
+            throw new PasswordHashingBusyException("Too many logins in progress, please retry later");
+        }
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            meterRegistry.counter("auth.password.rejected").increment();
+            throw new PasswordHashingBusyException("Too many logins in progress, please retry later");
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Password hashing failed", ex.getCause());
+        }
+    }
+
+    private static void logCalibration(int strength, Duration targetLatency) {
+        int recommended = BCryptCalibration.strengthFor(targetLatency);
+        logger.info("BCrypt cost {} meets a target latency of {} ms on this machine; the configured cost is {}",
+                recommended, targetLatency.toMillis(), strength);
+    }
+
+    private static PasswordEncoder bcrypt(int strength) {
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(BCRYPT_ID,
+                Map.of(BCRYPT_ID, new BCryptPasswordEncoder(strength)));
+        encoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder(strength));
+        return encoder;
+    }
+}
@@ -3,21 +3,29 @@ package com.example.bankcards.security;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.UserRepo;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Custom implementation of UserDetailsService for Spring Security.
  * Loads user details from the database by username and maps roles to authorities.
+ * Loaded users are kept in {@link UserDetailsCache}.
+ * Only used to check credentials at login; requests are authorized from their token.
+ * Passwords hashed with an outdated encoding are replaced after a successful login.
  */
 @Service
 @RequiredArgsConstructor
-public class CustomUserDetailService implements UserDetailsService {
+public class CustomUserDetailService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepo userRepo;
+    private final UserDetailsCache userDetailsCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
-     * Locates the user based on the username.
+     * Locates the user based on the username, from {@link UserDetailsCache} when possible.
      *
      * @param username the username identifying the user whose data is required.
      * @return a filled UserDetails object
@@ -25,17 +33,34 @@ public class CustomUserDetailService implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return userDetailsCache.get(username, this::load);
+    }
+
+    /**
+     * Stores the password of a user rehashed with the current encoding, after they logged in with it.
+     *
+     * @param user        the authenticated user
+     * @param newPassword the new password hash
+     * @return the user with the new password hash
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepo.updatePassword(user.getUsername(), newPassword);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getUsername()));
+        return new SecurityUser(user.getUsername(), newPassword, user.isEnabled(), user.getAuthorities(),
+                ((SecurityUser) user).getSecurityVersion());
+    }
+
+    private SecurityUser load(String username) {
         User user = userRepo.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("No such user " + username));
 
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getUsername())
-                .password(user.getPassword())
-                .authorities(user.getRoles().stream().map(r -> r.getName()).toArray(String[]::new))
-                .accountExpired(false)
-                .accountLocked(false)
-                .credentialsExpired(false)
-                .disabled(!user.getEnabled())
-                .build();
+        return new SecurityUser(
+                user.getUsername(),
+                user.getPassword(),
+                user.getEnabled(),
+                user.getRoles().stream().map(r -> new SimpleGrantedAuthority(r.getName())).toList(),
+                user.getSecurityVersion());
     }
 }
@@ -10,18 +10,22 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * Filter for JWT-based authentication.
  * Intercepts each HTTP request, extracts JWT token from the Authorization header,
- * validates it, and sets the authentication in the SecurityContext.
+ * verifies it once through {@link JwtProvider#verify}, and sets the authentication in the SecurityContext.
+ * The user and their roles come from the token itself, checked against {@link SecurityVersionTable}
+ * and {@link RevokedTokenTable}, so authenticating a request does not touch the database.
  */
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends GenericFilter {
 
     private final JwtProvider jwtProvider;
-    private final CustomUserDetailService userDetailService;
+    private final SecurityVersionTable securityVersionTable;
+    private final RevokedTokenTable revokedTokenTable;
 
     /**
      * Filters each HTTP request to authenticate user based on JWT token.
@@ -38,11 +42,11 @@ public class JwtAuthenticationFilter extends GenericFilter {
         HttpServletRequest httpRequest = (HttpServletRequest) req;
 
         String token = getJwtFromRequest(httpRequest);
-        if (token != null && jwtProvider.validateToken(token)) {
-            String username = jwtProvider.getUsernameFromToken(token);
-            var userDetails = userDetailService.loadUserByUsername(username);
-
-            var auth = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        var verified = token == null ? Optional.<JwtProvider.VerifiedToken>empty() : jwtProvider.verify(token);
+        if (verified.isPresent() && !securityVersionTable.isRevoked(verified.get())
+                && !revokedTokenTable.isRevoked(verified.get())) {
+            var claims = verified.get();
+            var auth = new UsernamePasswordAuthenticationToken(claims.username(), null, claims.authorities());
             auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(httpRequest));
             SecurityContextHolder.getContext().setAuthentication(auth);
         }
@@ -1,87 +1,192 @@
 package com.example.bankcards.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
-import lombok.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
-import java.security.Key;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 /**
- * Provides utility methods for generating and validating JWT tokens.
- * Handles signing, expiration, and parsing of JWTs.
+ * Provides utility methods for generating and verifying JWT tokens.
+ * Tokens carry the roles and the security version of their user, so that requests are authorized
+ * from the token alone; {@link SecurityVersionTable} tells which of them no longer hold.
+ * Every token has a unique id (jti), by which {@link RevokedTokenTable} tells which were revoked.
+ * The signing key and the parser are built once. A token is parsed and its signature checked a single time;
+ * the verified claims are then kept in a bounded cache, keyed by the SHA-256 digest of the token so that
+ * raw tokens are not held in memory, until the token expires.
+ * Hit, miss and eviction counts are exported under the cache name "jwt-verified".
  */
 @Component
-@RequiredArgsConstructor
 public class JwtProvider {
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    static final String ROLES_CLAIM = "roles";
+    static final String VERSION_CLAIM = "ver";
 
-    @Value("${jwt.expiry-seconds}")
-    private long jwtExpirationSec;
+    private static final HexFormat HEX = HexFormat.of();
 
-    @Value("${jwt.issuer}")
-    private String jwtIssuer;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long jwtExpirationSec;
+    private final String jwtIssuer;
+    private final Cache<String, VerifiedToken> verified;
 
-    /**
-     * Returns the signing key used for JWT token generation and validation.
-     *
-     * @return the Key used for signing
-     */
-    private Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
-        return Keys.hmacShaKeyFor(keyBytes);
+    public JwtProvider(MeterRegistry meterRegistry,
+                       @Value("${jwt.secret}") String jwtSecret,
+                       @Value("${jwt.expiry-seconds}") long jwtExpirationSec,
+                       @Value("${jwt.issuer}") String jwtIssuer,
+                       @Value("${jwt.verified-cache.max-size:10000}") long verifiedCacheSize) {
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.jwtExpirationSec = jwtExpirationSec;
+        this.jwtIssuer = jwtIssuer;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+                        return Math.max(0, token.expiresAt().toEpochMilli() - System.currentTimeMillis()) * 1_000_000;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "jwt-verified");
     }
 
     /**
-     * Generates a JWT token for the specified username.
+     * Generates a JWT token for the specified user.
      *
-     * @param username the username to include in the token subject
-     * @return the generated JWT token string
+     * @param username        the username to include in the token subject
+     * @param roles           the names of the user's roles
+     * @param securityVersion the current security version of the user
+     * @return the generated JWT token with its id and expiry
      */
-    public String generateToken(String username) {
+    public IssuedToken generateToken(String username, Collection<String> roles, long securityVersion) {
+        UUID tokenId = UUID.randomUUID();
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationSec * 1000);
-        return Jwts.builder()
+        String token = Jwts.builder()
+                .setId(tokenId.toString())
                 .setSubject(username)
+                .claim(ROLES_CLAIM, List.copyOf(roles))
+                .claim(VERSION_CLAIM, securityVersion)
                 .setIssuer(jwtIssuer)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
+        return new IssuedToken(token, tokenId, expiryDate.toInstant());
     }
 
     /**
-     * Extracts the username from the JWT token.
+     * Verifies the given JWT token and returns its claims.
+     * A token seen before is answered from the cache without parsing it again.
      *
      * @param token the JWT token
-     * @return the username contained in the token
+     * @return the verified claims, or empty if the token is malformed, badly signed or expired
      */
-    public String getUsernameFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+    public Optional<VerifiedToken> verify(String token) {
+        String key = digest(token);
+        VerifiedToken cached = verified.getIfPresent(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<VerifiedToken> parsed = parse(token);
+        parsed.ifPresent(verifiedToken -> verified.put(key, verifiedToken));
+        return parsed;
     }
 
     /**
-     * Validates the given JWT token.
+     * Parses the token and checks its signature and expiry, bypassing the cache.
+     * Tokens without an id, a subject, roles, a security version or an expiry are rejected,
+     * so that nothing is cached forever and tokens issued before these claims were embedded are not accepted.
      *
-     * @param token the JWT token to validate
-     * @return true if valid, false if not
+     * @param token the JWT token
+     * @return the verified claims, or empty if the token is not valid
      */
-    public boolean validateToken(String token) {
+    Optional<VerifiedToken> parse(String token) {
+        Claims claims;
         try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token);
-            return true;
+            claims = parser.parseClaimsJws(token).getBody();
         } catch (JwtException | IllegalArgumentException ex) {
-            return false;
+            return Optional.empty();
+        }
+        Object roles = claims.get(ROLES_CLAIM);
+        Object version = claims.get(VERSION_CLAIM);
+        if (claims.getId() == null || claims.getSubject() == null || claims.getExpiration() == null
+                || !(roles instanceof List<?> roleNames) || !(version instanceof Number securityVersion)) {
+            return Optional.empty();
+        }
+        UUID tokenId;
+        try {
+            tokenId = UUID.fromString(claims.getId());
+        } catch (IllegalArgumentException ex) {
+            return Optional.empty();
         }
+        List<GrantedAuthority> authorities = roleNames.stream()
+                .<GrantedAuthority>map(role -> new SimpleGrantedAuthority(String.valueOf(role)))
+                .toList();
+        return Optional.of(new VerifiedToken(tokenId, claims.getSubject(), authorities, securityVersion.longValue(),
+                claims.getExpiration().toInstant()));
+    }
+
+    private static String digest(String token) {
+        try {
+            return HEX.formatHex(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * A newly signed token.
+     *
+     * @param value     the compact JWT
+     * @param tokenId   the id (jti) of the token
+     * @param expiresAt the expiry of the token
+     */
+    public record IssuedToken(String value, UUID tokenId, Instant expiresAt) {
+    }
+
+    /**
+     * Claims of a token whose signature and expiry have been checked.
+     *
+     * @param tokenId         the id (jti) of the token
+     * @param username        the subject of the token
+     * @param authorities     the roles of the user when the token was issued
+     * @param securityVersion the security version of the user when the token was issued
+     * @param expiresAt       the expiry of the token
+     */
+    public record VerifiedToken(UUID tokenId, String username, List<GrantedAuthority> authorities,
+                                long securityVersion, Instant expiresAt) {
     }
 }
@@ -0,0 +1,49 @@
+package com.example.bankcards.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+/**
+ * Computes keyed digests of card numbers (PANs) for exact-match lookups.
+ * The digest is HMAC-SHA256 of the number under a secret key, so equal numbers have equal digests
+ * while the number cannot be recovered or brute-forced from the digest without the key.
+ * Matches pgcrypto's {@code hmac(number, secret, 'sha256')} used to backfill existing cards.
+ */
+@Component
+public class PanDigester {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+
+    public PanDigester(@Value("${card.pan-digest.secret}") String secret) {
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    /**
+     * Computes the digest of a card number.
+     *
+     * @param number the full card number
+     * @return the 32-byte digest
+     */
+    public byte[] digest(String number) {
+        return macs.get().doFinal(number.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize " + ALGORITHM, e);
+        }
+    }
+}
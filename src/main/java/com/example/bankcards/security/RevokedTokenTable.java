@@ -0,0 +1,143 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.RevokedToken;
+import com.example.bankcards.repository.RevokedTokenRepo;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory set of the access tokens (by jti) revoked before their expiry, so that tokens can be checked
+ * against it without any SQL on the request path.
+ * A Bloom filter sits in front of the exact set: the common case of a token that was never revoked is
+ * answered by a few bit lookups, and only the rare "maybe" goes on to the exact set.
+ * The set is refreshed with the rows written by transactions at or above the commit horizon of the previous
+ * refresh, that is the oldest transaction then still in flight, so that revocations whose transactions
+ * commit late are not missed. Expired ids are pruned, and the filter is rebuilt once enough of them are gone
+ * or when it fills up.
+ */
+@Component
+public class RevokedTokenTable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevokedTokenTable.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final RevokedTokenRepo revokedTokenRepo;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+    private final long minCapacity;
+    private final Map<UUID, Instant> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    private long capacity;
+    private long prunedSinceRebuild;
+    private volatile long refreshedUpTo;
+
+    @Autowired
+    public RevokedTokenTable(RevokedTokenRepo revokedTokenRepo,
+                             MeterRegistry meterRegistry,
+                             @Value("${jwt.revocation.bloom.expected-insertions:100000}") long expectedInsertions) {
+        this(revokedTokenRepo, meterRegistry, expectedInsertions, Clock.systemUTC());
+    }
+
+    RevokedTokenTable(RevokedTokenRepo revokedTokenRepo,
+                      MeterRegistry meterRegistry,
+                      long expectedInsertions,
+                      Clock clock) {
+        this.revokedTokenRepo = revokedTokenRepo;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        this.minCapacity = expectedInsertions;
+        this.capacity = expectedInsertions;
+        this.filter = new BloomFilter(expectedInsertions, FALSE_POSITIVE_RATE);
+        meterRegistry.gaugeMapSize("auth.token.revoked.size", List.of(), revoked);
+    }
+
+    /**
+     * Tells whether an access token was revoked before its expiry.
+     *
+     * @param token the verified token
+     * @return true if the token must be rejected
+     */
+    public boolean isRevoked(JwtProvider.VerifiedToken token) {
+        boolean revokedToken = filter.mightContain(token.tokenId()) && revoked.containsKey(token.tokenId());
+        if (revokedToken) {
+            meterRegistry.counter("auth.token.revoked").increment();
+        }
+        return revokedToken;
+    }
+
+    /**
+     * Adds a token revoked by this instance right away, without waiting for the next refresh.
+     *
+     * @param tokenId   the jti of the revoked token
+     * @param expiresAt the expiry of the revoked token
+     */
+    public synchronized void revoke(UUID tokenId, Instant expiresAt) {
+        revoked.put(tokenId, expiresAt);
+        filter.put(tokenId);
+        if (revoked.size() > capacity) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Loads the tokens that are revoked and not yet expired before the first request is served.
+     */
+    @PostConstruct
+    void load() {
+        refreshedUpTo = 0;
+        refresh();
+    }
+
+    /**
+     * Reads the tokens revoked since the previous refresh and drops those that have expired.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.refresh-interval-ms:5000}")
+    public void refresh() {
+        Instant now = Instant.now(clock);
+        long horizon;
+        List<RevokedToken> tokens;
+        try {
+            // The horizon is taken before the read, so every revocation below it is seen by the read.
+            horizon = revokedTokenRepo.findCommitHorizon();
+            tokens = revokedTokenRepo.findRevokedSince(refreshedUpTo, now);
+        } catch (RuntimeException ex) {
+            logger.warn("Could not refresh revoked tokens, keeping the previous set", ex);
+            return;
+        }
+        synchronized (this) {
+            tokens.forEach(token -> revoke(token.getId(), token.getExpiresAt()));
+            int before = revoked.size();
+            revoked.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+            prunedSinceRebuild += before - revoked.size();
+            if (prunedSinceRebuild > capacity / 4) {
+                rebuild();
+            }
+        }
+        refreshedUpTo = horizon;
+    }
+
+    /**
+     * Replaces the filter with one holding only the ids still in the set, sized for twice as many.
+     */
+    private void rebuild() {
+        capacity = Math.max(minCapacity, revoked.size() * 2L);
+        BloomFilter rebuilt = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        revoked.keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+        prunedSinceRebuild = 0;
+    }
+}
@@ -7,15 +7,14 @@ import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 
 /**
  * Security configuration for the Bank_REST application.
- * Configures HTTP security, password encoding, authentication manager and JWT authentication filter.
+ * Configures HTTP security, authentication manager and JWT authentication filter.
+ * Passwords are encoded by {@link BoundedPasswordEncoder}.
  * Enables method-level security using @PreAuthorize and @PostAuthorize annotations.
  */
 @Configuration
@@ -49,16 +48,6 @@ public class SecurityConfig {
         return http.build();
     }
 
-    /**
-     * Provides a BCrypt password encoder for hashing user passwords.
-     *
-     * @return the PasswordEncoder bean
-     */
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
-
     /**
      * Exposes the AuthenticationManager bean for use in authentication operations.
      *
@@ -0,0 +1,30 @@
+package com.example.bankcards.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * User details that also carry the security version of the user, so that a token can be issued
+ * from a successful login without reading the user again.
+ */
+public class SecurityUser extends User {
+
+    private final long securityVersion;
+
+    public SecurityUser(String username, String password, boolean enabled,
+                        Collection<? extends GrantedAuthority> authorities, long securityVersion) {
+        super(username, password, enabled, true, true, true, authorities);
+        this.securityVersion = securityVersion;
+    }
+
+    /**
+     * Returns the security version of the user when the details were loaded.
+     *
+     * @return the security version
+     */
+    public long getSecurityVersion() {
+        return securityVersion;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.UserRepo;
+import com.example.bankcards.repository.UserSecurityState;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory table of the users whose roles or enabled status changed within the lifetime of a token,
+ * so that tokens can be checked against them without any SQL on the request path.
+ * A user missing from the table has not changed since any token that is still valid was issued.
+ * The table is refreshed with the users changed by transactions at or above the commit horizon of the previous
+ * refresh, that is the oldest transaction then still in flight, so that changes whose transactions commit late
+ * are not missed.
+ */
+@Component
+public class SecurityVersionTable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecurityVersionTable.class);
+
+    private final UserRepo userRepo;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final Duration retention;
+    private final Clock clock;
+    private final Map<String, UserSecurityState> changed = new ConcurrentHashMap<>();
+    private volatile long refreshedUpTo;
+
+    @Autowired
+    public SecurityVersionTable(UserRepo userRepo,
+                                ApplicationEventPublisher eventPublisher,
+                                MeterRegistry meterRegistry,
+                                @Value("${jwt.expiry-seconds}") long tokenLifetimeSec) {
+        this(userRepo, eventPublisher, meterRegistry, Duration.ofSeconds(tokenLifetimeSec), Clock.systemUTC());
+    }
+
+    SecurityVersionTable(UserRepo userRepo,
+                         ApplicationEventPublisher eventPublisher,
+                         MeterRegistry meterRegistry,
+                         Duration retention,
+                         Clock clock) {
+        this.userRepo = userRepo;
+        this.eventPublisher = eventPublisher;
+        this.meterRegistry = meterRegistry;
+        this.retention = retention;
+        this.clock = clock;
+    }
+
+    /**
+     * Tells whether a verified token no longer holds because its user was disabled
+     * or had their roles changed after it was issued.
+     *
+     * @param token the verified token
+     * @return true if the token must be rejected
+     */
+    public boolean isRevoked(JwtProvider.VerifiedToken token) {
+        UserSecurityState state = changed.get(token.username());
+        boolean revoked = state != null && (!state.enabled() || state.securityVersion() > token.securityVersion());
+        if (revoked) {
+            meterRegistry.counter("auth.token.revoked").increment();
+        }
+        return revoked;
+    }
+
+    /**
+     * Loads the changes of the last token lifetime before the first request is served.
+     */
+    @PostConstruct
+    void load() {
+        // The horizon is taken before each read, so every change below it is seen by the read.
+        long horizon = userRepo.findCommitHorizon();
+        apply(userRepo.findSecurityStatesChangedSince(Instant.now(clock).minus(retention)));
+        refreshedUpTo = horizon;
+    }
+
+    /**
+     * Reads the users changed since the previous refresh and drops those whose change is older than any valid token.
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.refresh-interval-ms:5000}")
+    public void refresh() {
+        long horizon;
+        List<UserSecurityState> states;
+        try {
+            horizon = userRepo.findCommitHorizon();
+            states = userRepo.findSecurityStatesChangedSince(refreshedUpTo);
+        } catch (RuntimeException ex) {
+            logger.warn("Could not refresh user security versions, keeping the previous table", ex);
+            return;
+        }
+        apply(states);
+        refreshedUpTo = horizon;
+    }
+
+    /**
+     * Adds the given states and drops those whose change is older than any valid token.
+     * A {@link UserSecurityChangedEvent} is published for every user seen with a new security version.
+     */
+    private void apply(List<UserSecurityState> states) {
+        for (UserSecurityState state : states) {
+            UserSecurityState known = changed.get(state.username());
+            if (known == null || state.securityVersion() > known.securityVersion()) {
+                changed.put(state.username(), state);
+                eventPublisher.publishEvent(new UserSecurityChangedEvent(state.username()));
+            }
+        }
+        Instant expired = Instant.now(clock).minus(retention);
+        changed.values().removeIf(state -> state.changedAt().isBefore(expired));
+    }
+}
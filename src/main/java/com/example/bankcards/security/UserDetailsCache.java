@@ -0,0 +1,73 @@
+package com.example.bankcards.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Bounded local cache of the users loaded by {@link CustomUserDetailService}.
+ * Entries are immutable snapshots from which a new {@link SecurityUser} is built on every hit, since
+ * Spring Security erases the credentials of the user it authenticated. A user is dropped on every
+ * {@link UserSecurityChangedEvent}, and entries expire after a short TTL as a safety net.
+ * Hit, miss and eviction counts are exported under the cache name "user-details".
+ */
+@Component
+public class UserDetailsCache {
+
+    private final Cache<String, Snapshot> cache;
+
+    public UserDetailsCache(MeterRegistry meterRegistry,
+                            @Value("${auth.user-cache.max-size:10000}") long maxSize,
+                            @Value("${auth.user-cache.ttl:30s}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "user-details");
+    }
+
+    /**
+     * Returns the cached user, loading it on a miss.
+     * Concurrent misses for the same username share one load; users that are not found are not cached.
+     *
+     * @param username the username
+     * @param loader reads the user from the database
+     * @return a new SecurityUser built from the cached snapshot
+     */
+    public SecurityUser get(String username, Function<String, SecurityUser> loader) {
+        return cache.get(username, key -> Snapshot.of(loader.apply(key))).toUser();
+    }
+
+    /**
+     * Drops a user whose credentials, roles or enabled status may have changed.
+     *
+     * @param event the change
+     */
+    @EventListener
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        cache.invalidate(event.username());
+    }
+
+    private record Snapshot(String username, String password, boolean enabled,
+                            List<GrantedAuthority> authorities, long securityVersion) {
+
+        static Snapshot of(SecurityUser user) {
+            return new Snapshot(user.getUsername(), user.getPassword(), user.isEnabled(),
+                    List.copyOf(user.getAuthorities()), user.getSecurityVersion());
+        }
+
+        SecurityUser toUser() {
+            return new SecurityUser(username, password, enabled, authorities, securityVersion);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.bankcards.security;
+
+/**
+ * Published when a user's credentials, roles or enabled status may have changed,
+ * so that anything cached about the user is dropped.
+ *
+ * @param username the username of the user
+ */
+public record UserSecurityChangedEvent(String username) {
+}
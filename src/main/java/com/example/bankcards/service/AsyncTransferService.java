@@ -0,0 +1,230 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BatchTransferItemResponse;
+import com.example.bankcards.dto.TransferStatusResponse;
+import com.example.bankcards.dto.TransferStatusResponse.Status;
+import com.example.bankcards.entity.Transfer;
+import com.example.bankcards.exception.TransferQueueFullException;
+import com.example.bankcards.repository.TransferRepo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service class for asynchronous transfer submission.
+ * Accepted transfers are put on a bounded queue and applied by worker threads that drain it
+ * in micro-batches, committing each batch in a single transaction through {@link TransferService#executeBatch}.
+ * Clients poll the status of a submitted transfer by its id.
+ */
+@Service
+public class AsyncTransferService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncTransferService.class);
+
+    private static final long POLL_TIMEOUT_MS = 200;
+
+    private final TransferService transferService;
+    private final TransferRepo transferRepo;
+    private final MeterRegistry meterRegistry;
+    private final BlockingQueue<TransferCommand> queue;
+    private final ConcurrentMap<UUID, TransferCommand> pending = new ConcurrentHashMap<>();
+    private final Cache<UUID, FinishedTransfer> finished;
+    private final int workers;
+    private final int maxBatchSize;
+
+    private ExecutorService executor;
+    private volatile boolean accepting;
+
+    public AsyncTransferService(TransferService transferService,
+                                TransferRepo transferRepo,
+                                MeterRegistry meterRegistry,
+                                @Value("${transfer.async.queue-capacity:10000}") int queueCapacity,
+                                @Value("${transfer.async.workers:4}") int workers,
+                                @Value("${transfer.async.max-batch-size:500}") int maxBatchSize,
+                                @Value("${transfer.async.status-ttl:1h}") Duration statusTtl) {
+        this.transferService = transferService;
+        this.transferRepo = transferRepo;
+        this.meterRegistry = meterRegistry;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workers = workers;
+        this.maxBatchSize = maxBatchSize;
+        this.finished = Caffeine.newBuilder()
+                .maximumSize(Math.max(queueCapacity, 1) * 10L)
+                .expireAfterWrite(statusTtl)
+                .build();
+        meterRegistry.gauge("transfer.async.queue.size", queue, BlockingQueue::size);
+    }
+
+    /**
+     * Starts the worker threads.
+     */
+    @PostConstruct
+    public void start() {
+        accepting = true;
+        executor = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("transfer-worker-"));
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::runWorker);
+        }
+    }
+
+    /**
+     * Stops accepting transfers and lets the workers apply everything already queued.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        accepting = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            logger.warn("{} queued transfers were not applied before shutdown", queue.size());
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Queues a transfer for asynchronous execution.
+     *
+     * @param fromCardId the UUID of the source card
+     * @param toCardId the UUID of the target card
+     * @param amount the transfer amount
+     * @param username the username of the user initiating the transfer
+     * @return the PENDING status of the queued transfer, including its id
+     * @throws TransferQueueFullException if the queue has no free slot
+     */
+    public TransferStatusResponse submit(UUID fromCardId, UUID toCardId, BigDecimal amount, String username) {
+        TransferCommand command = new TransferCommand(UUID.randomUUID(), fromCardId, toCardId, amount, username);
+
+        pending.put(command.id(), command);
+        if (!accepting || !queue.offer(command)) {
+            pending.remove(command.id());
+            meterRegistry.counter("transfer.async.rejected").increment();
+            throw new TransferQueueFullException("Transfer queue is full, please retry later");
+        }
+
+        meterRegistry.counter("transfer.async.submitted").increment();
+        return status(command, Status.PENDING, null);
+    }
+
+    /**
+     * Returns the current status of a transfer visible to the given user.
+     * Recently processed transfers are answered from memory; older ones are looked up in the database.
+     *
+     * @param id the UUID of the transfer
+     * @param username the username of the user asking
+     * @return the status of the transfer
+     * @throws RuntimeException if the transfer does not exist or was made from another user's card
+     */
+    @Transactional(readOnly = true)
+    public TransferStatusResponse getStatus(UUID id, String username) {
+        TransferCommand queued = pending.get(id);
+        if (queued != null && queued.username().equals(username)) {
+            return status(queued, Status.PENDING, null);
+        }
+
+        FinishedTransfer done = finished.getIfPresent(id);
+        if (done != null && done.command().username().equals(username)) {
+            return status(done.command(), done.status(), done.error());
+        }
+
+        Transfer transfer = transferRepo.findById(id)
+                .filter(t -> t.getFromCard().getUser().getUsername().equals(username))
+                .orElseThrow(() -> new RuntimeException("Transfer not found"));
+        return new TransferStatusResponse(transfer.getId(), Status.COMPLETED,
+                transfer.getFromCard().getId(), transfer.getToCard().getId(), transfer.getAmount(), null);
+    }
+
+    /**
+     * Worker loop: applies micro-batches until the service is stopped and the queue is empty.
+     */
+    private void runWorker() {
+        while (true) {
+            List<TransferCommand> batch;
+            try {
+                batch = nextBatch();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (batch.isEmpty()) {
+                if (!accepting) {
+                    return;
+                }
+                continue;
+            }
+            process(batch);
+        }
+    }
+
+    /**
+     * Waits briefly for a queued transfer and takes it together with whatever else is already queued,
+     * up to the maximum batch size.
+     *
+     * @return the next micro-batch, empty if nothing arrived in time
+     */
+    List<TransferCommand> nextBatch() throws InterruptedException {
+        TransferCommand first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return List.of();
+        }
+        List<TransferCommand> batch = new ArrayList<>(Math.min(maxBatchSize, queue.size() + 1));
+        batch.add(first);
+        queue.drainTo(batch, maxBatchSize - 1);
+        return batch;
+    }
+
+    /**
+     * Applies a micro-batch in one transaction and records the outcome of every transfer.
+     *
+     * @param batch the transfers to apply
+     */
+    void process(List<TransferCommand> batch) {
+        try {
+            List<BatchTransferItemResponse> results = transferService.executeBatch(batch);
+            for (BatchTransferItemResponse result : results) {
+                TransferCommand command = batch.get(result.getIndex());
+                finish(command, result.isSuccess() ? Status.COMPLETED : Status.FAILED, result.getError());
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to apply a batch of {} transfers", batch.size(), e);
+            batch.forEach(command -> finish(command, Status.FAILED, "Transfer could not be applied"));
+        }
+        meterRegistry.summary("transfer.async.batch.size").record(batch.size());
+    }
+
+    private void finish(TransferCommand command, Status status, String error) {
+        finished.put(command.id(), new FinishedTransfer(command, status, error));
+        pending.remove(command.id());
+        meterRegistry.counter("transfer.async.processed", "status", status.name()).increment();
+    }
+
+    private static TransferStatusResponse status(TransferCommand command, Status status, String error) {
+        return new TransferStatusResponse(command.id(), status,
+                command.fromCardId(), command.toCardId(), command.amount(), error);
+    }
+
+    /**
+     * Outcome of a processed transfer kept in memory for status polling.
+     */
+    private record FinishedTransfer(TransferCommand command, Status status, String error) {
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardBulkStatusRequest;
+import com.example.bankcards.dto.CardBulkStatusResponse;
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardRepo;
+import com.example.bankcards.repository.CardSearchFilter;
+import com.example.bankcards.repository.ChangedCard;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Service class for blocking, activating and deleting many cards at once.
+ * Cards are changed in chunks of set-based updates, each in its own short transaction that also moves
+ * the cards between the counters of {@link CardStatsService}; the changed cards are dropped from
+ * {@link CardCache} after each chunk. A failed chunk does not undo the chunks before it.
+ */
+@Service
+public class CardBulkService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CardBulkService.class);
+
+    private final CardRepo cardRepo;
+    private final RetryingTransactionTemplate retryingTransactionTemplate;
+    private final CardCache cardCache;
+    private final CardStatsService cardStatsService;
+    private final MeterRegistry meterRegistry;
+    private final int chunkSize;
+    private final Clock clock;
+
+    @Autowired
+    public CardBulkService(CardRepo cardRepo,
+                           RetryingTransactionTemplate retryingTransactionTemplate,
+                           CardCache cardCache,
+                           CardStatsService cardStatsService,
+                           MeterRegistry meterRegistry,
+                           @Value("${card.bulk.chunk-size:1000}") int chunkSize) {
+        this(cardRepo, retryingTransactionTemplate, cardCache, cardStatsService, meterRegistry,
+                chunkSize, Clock.systemDefaultZone());
+    }
+
+    CardBulkService(CardRepo cardRepo,
+                    RetryingTransactionTemplate retryingTransactionTemplate,
+                    CardCache cardCache,
+                    CardStatsService cardStatsService,
+                    MeterRegistry meterRegistry,
+                    int chunkSize,
+                    Clock clock) {
+        this.cardRepo = cardRepo;
+        this.retryingTransactionTemplate = retryingTransactionTemplate;
+        this.cardCache = cardCache;
+        this.cardStatsService = cardStatsService;
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = chunkSize;
+        this.clock = clock;
+    }
+
+    /**
+     * Sets the status of the cards given by ID or matching the filter of the request.
+     * Deleted cards are never changed, and activated cards whose expiry date has passed become EXPIRED,
+     * as with the single-card operations of {@link CardService}.
+     * Matching cards are walked with the (expiry, id) keyset of the admin search.
+     *
+     * @param request the IDs of the cards, or the filter they must match
+     * @param status the new status: ACTIVE, BLOCKED or DELETED
+     * @return CardBulkStatusResponse with the cards whose status changed
+     * @throws IllegalArgumentException if the request gives both or neither IDs and filters,
+     *                                  the last 4 digits are invalid or the status cannot be set in bulk
+     */
+    public CardBulkStatusResponse changeStatus(CardBulkStatusRequest request, CardStatus status) {
+        if (status == CardStatus.EXPIRED) {
+            throw new IllegalArgumentException("Cards cannot be expired in bulk");
+        }
+        boolean byId = request.getIds() != null && !request.getIds().isEmpty();
+        boolean byFilter = request.getStatus() != null || request.getLast4() != null || request.getOwner() != null
+                || request.getExpiryFrom() != null || request.getExpiryTo() != null;
+        if (byId == byFilter) {
+            throw new IllegalArgumentException("Cards must be given either by ID or by filter");
+        }
+        if (request.getLast4() != null && !request.getLast4().matches("\\d{4}")) {
+            throw new IllegalArgumentException("Last 4 digits must be 4 digits");
+        }
+
+        List<UUID> changed = new ArrayList<>();
+        if (byId) {
+            List<UUID> ids = request.getIds();
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                changed.addAll(changeChunk(ids.subList(from, Math.min(from + chunkSize, ids.size())), status));
+            }
+        } else {
+            CardSearchFilter filter = new CardSearchFilter(request.getStatus(), request.getLast4(), request.getOwner(),
+                    request.getExpiryFrom(), request.getExpiryTo());
+            LocalDate afterExpiry = null;
+            UUID afterId = null;
+            Slice<CardResponse> slice;
+            do {
+                slice = cardRepo.search(filter, afterExpiry, afterId, chunkSize);
+                List<CardResponse> cards = slice.getContent();
+                if (cards.isEmpty()) {
+                    break;
+                }
+                changed.addAll(changeChunk(cards.stream().map(CardResponse::getId).toList(), status));
+                afterExpiry = cards.get(cards.size() - 1).getExpiry();
+                afterId = cards.get(cards.size() - 1).getId();
+            } while (slice.hasNext());
+        }
+
+        meterRegistry.counter("card.bulk.changed", "status", status.name()).increment(changed.size());
+        logger.info("Changed {} cards to {} in bulk", changed.size(), status);
+        return new CardBulkStatusResponse(changed.size(), changed);
+    }
+
+    private List<UUID> changeChunk(List<UUID> ids, CardStatus status) {
+        List<ChangedCard> cards = retryingTransactionTemplate.execute("card-bulk-status", () -> {
+            List<ChangedCard> changed = cardRepo.changeStatus(ids.toArray(UUID[]::new), status.name(), LocalDate.now(clock));
+            cardStatsService.recordStatusChanges(changed);
+            return changed;
+        });
+        List<UUID> changedIds = cards.stream().map(ChangedCard::getId).toList();
+        cardCache.evictAfterCommit(changedIds);
+        return changedIds;
+    }
+}
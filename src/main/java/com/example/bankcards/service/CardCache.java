@@ -0,0 +1,110 @@
+package com.example.bankcards.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Bounded local cache of {@link CardSnapshot}s for card reads.
+ * Entries are dropped by every change to a card once it is committed, and expire after a TTL
+ * as a safety net for changes made by other application instances.
+ * Hit, miss and eviction counts are exported under the cache name "cards".
+ * <p>
+ * Loaders are expected to only read. Should a load still change a card, its eviction is held back until
+ * the load returns, since the cache cannot drop an entry while that entry is being computed.
+ */
+@Component
+public class CardCache {
+
+    private final Cache<UUID, CardSnapshot> cache;
+    private final ThreadLocal<Set<UUID>> evictedWhileLoading = new ThreadLocal<>();
+
+    public CardCache(MeterRegistry meterRegistry,
+                     @Value("${card.cache.max-size:10000}") long maxSize,
+                     @Value("${card.cache.ttl:5m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "cards");
+    }
+
+    /**
+     * Returns the cached snapshot of a card, loading it on a miss.
+     * Concurrent misses for the same card share one load.
+     *
+     * @param id the UUID of the card
+     * @param loader reads the card from the database
+     * @return the snapshot
+     */
+    public CardSnapshot get(UUID id, Function<UUID, CardSnapshot> loader) {
+        if (evictedWhileLoading.get() != null) {
+            return cache.get(id, loader);
+        }
+        try {
+            return cache.get(id, key -> {
+                evictedWhileLoading.set(new HashSet<>());
+                return loader.apply(key);
+            });
+        } finally {
+            Set<UUID> evicted = evictedWhileLoading.get();
+            if (evicted != null) {
+                evictedWhileLoading.remove();
+                cache.invalidateAll(evicted);
+            }
+        }
+    }
+
+    /**
+     * Drops the given cards from the cache once the current transaction commits,
+     * or right away if there is no transaction.
+     * Evicting only after commit keeps a concurrent reader from caching the old state again.
+     *
+     * @param ids the UUIDs of the changed cards
+     */
+    public void evictAfterCommit(Collection<UUID> ids) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(ids);
+            return;
+        }
+        List<UUID> changed = List.copyOf(ids);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(changed);
+            }
+        });
+    }
+
+    /**
+     * Drops a card from the cache once the current transaction commits, or right away if there is none.
+     *
+     * @param id the UUID of the changed card
+     */
+    public void evictAfterCommit(UUID id) {
+        evictAfterCommit(List.of(id));
+    }
+
+    private void evict(Collection<UUID> ids) {
+        Set<UUID> evicted = evictedWhileLoading.get();
+        if (evicted != null) {
+            evicted.addAll(ids);
+        } else {
+            cache.invalidateAll(ids);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset position in a card search ordered by (expiry, id).
+ * Encoded as an opaque URL-safe string for clients.
+ *
+ * @param expiry expiry date of the last returned card
+ * @param id     UUID of the last returned card
+ */
+public record CardCursor(LocalDate expiry, UUID id) {
+
+    /**
+     * Creates a cursor pointing right after the given card.
+     *
+     * @param card the last card of a slice
+     * @return the cursor for the next slice
+     */
+    public static CardCursor after(CardResponse card) {
+        return new CardCursor(card.getExpiry(), card.getId());
+    }
+
+    /**
+     * Decodes a cursor received from a client.
+     *
+     * @param value the encoded cursor
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the value is not a valid cursor
+     */
+    public static CardCursor decode(String value) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf('|');
+            return new CardCursor(
+                    LocalDate.parse(decoded.substring(0, separator)),
+                    UUID.fromString(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Encodes the cursor for clients.
+     *
+     * @return the opaque cursor string
+     */
+    public String encode() {
+        String raw = expiry + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.repository.CardVersion;
+import org.springframework.data.domain.Page;
+import org.springframework.util.DigestUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Strong entity tags of card resources.
+ * Every change of a card row increments its version; credits into the balance shards of a sharded card
+ * do not, so the shard balance is part of the tag of such a card.
+ */
+public final class CardEtags {
+
+    private CardEtags() {
+    }
+
+    /**
+     * Computes the tag of a single card.
+     *
+     * @param version the version of the card
+     * @param shardBalance the balance held in its shards, null or zero if it has none
+     * @return the quoted entity tag
+     */
+    public static String of(Long version, BigDecimal shardBalance) {
+        return '"' + token(version, shardBalance) + '"';
+    }
+
+    /**
+     * Computes the tag of a page of cards from the page position, the total and the versions of its cards,
+     * so that it changes whenever any part of the page response changes.
+     *
+     * @param versions the versions of the cards on the page, in page order
+     * @return the quoted entity tag
+     */
+    public static String ofPage(Page<CardVersion> versions) {
+        StringBuilder raw = new StringBuilder()
+                .append(versions.getNumber()).append('/')
+                .append(versions.getSize()).append('/')
+                .append(versions.getTotalElements());
+        for (CardVersion card : versions) {
+            raw.append('|').append(card.id()).append(':').append(token(card.version(), card.shardBalance()));
+        }
+        return '"' + DigestUtils.md5DigestAsHex(raw.toString().getBytes(StandardCharsets.UTF_8)) + '"';
+    }
+
+    private static String token(Long version, BigDecimal shardBalance) {
+        if (shardBalance == null || shardBalance.signum() == 0) {
+            return String.valueOf(version);
+        }
+        return version + "-" + shardBalance.stripTrailingZeros().toPlainString();
+    }
+}
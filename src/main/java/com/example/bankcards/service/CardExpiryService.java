@@ -0,0 +1,107 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.JobWatermark;
+import com.example.bankcards.repository.CardRepo;
+import com.example.bankcards.repository.ChangedCard;
+import com.example.bankcards.repository.JobWatermarkRepo;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Service class that marks cards EXPIRED once their expiry date has passed.
+ * A scheduled run expires cards in chunks of set-based updates, each in its own short transaction,
+ * and then advances a watermark, so the next run only scans expiry dates that became due since.
+ */
+@Service
+public class CardExpiryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CardExpiryService.class);
+
+    static final String JOB_NAME = "card-expiry";
+
+    private final CardRepo cardRepo;
+    private final JobWatermarkRepo jobWatermarkRepo;
+    private final RetryingTransactionTemplate retryingTransactionTemplate;
+    private final CardCache cardCache;
+    private final CardStatsService cardStatsService;
+    private final MeterRegistry meterRegistry;
+    private final int chunkSize;
+    private final Clock clock;
+
+    @Autowired
+    public CardExpiryService(CardRepo cardRepo,
+                             JobWatermarkRepo jobWatermarkRepo,
+                             RetryingTransactionTemplate retryingTransactionTemplate,
+                             CardCache cardCache,
+                             CardStatsService cardStatsService,
+                             MeterRegistry meterRegistry,
+                             @Value("${card.expiry.chunk-size:1000}") int chunkSize) {
+        this(cardRepo, jobWatermarkRepo, retryingTransactionTemplate, cardCache, cardStatsService, meterRegistry,
+                chunkSize, Clock.systemDefaultZone());
+    }
+
+    CardExpiryService(CardRepo cardRepo,
+                      JobWatermarkRepo jobWatermarkRepo,
+                      RetryingTransactionTemplate retryingTransactionTemplate,
+                      CardCache cardCache,
+                      CardStatsService cardStatsService,
+                      MeterRegistry meterRegistry,
+                      int chunkSize,
+                      Clock clock) {
+        this.cardRepo = cardRepo;
+        this.jobWatermarkRepo = jobWatermarkRepo;
+        this.retryingTransactionTemplate = retryingTransactionTemplate;
+        this.cardCache = cardCache;
+        this.cardStatsService = cardStatsService;
+        this.meterRegistry = meterRegistry;
+        this.chunkSize = chunkSize;
+        this.clock = clock;
+    }
+
+    /**
+     * Expires every active or blocked card whose expiry date is between the watermark and today,
+     * then moves the watermark to today.
+     *
+     * @return the number of expired cards
+     */
+    @Scheduled(initialDelayString = "${card.expiry.initial-delay-ms:10000}",
+            fixedDelayString = "${card.expiry.interval-ms:3600000}")
+    public int expireCards() {
+        LocalDate today = LocalDate.now(clock);
+        LocalDate from = jobWatermarkRepo.findById(JOB_NAME)
+                .map(JobWatermark::getWatermark)
+                .orElse(LocalDate.EPOCH);
+        if (!from.isBefore(today)) {
+            return 0;
+        }
+
+        int total = 0;
+        List<ChangedCard> expired;
+        do {
+            expired = retryingTransactionTemplate.execute("card-expiry", () -> {
+                List<ChangedCard> cards = cardRepo.expireBefore(from, today, chunkSize);
+                cardStatsService.recordStatusChanges(cards);
+                return cards;
+            });
+            cardCache.evictAfterCommit(expired.stream().map(ChangedCard::getId).toList());
+            total += expired.size();
+        } while (expired.size() == chunkSize);
+
+        jobWatermarkRepo.save(new JobWatermark(JOB_NAME, today, Instant.now(clock)));
+        meterRegistry.counter("card.expiry.expired").increment(total);
+        if (total > 0) {
+            logger.info("Expired {} cards with expiry dates from {} to {}", total, from, today.minusDays(1));
+        }
+        return total;
+    }
+}
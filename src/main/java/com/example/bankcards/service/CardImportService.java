@@ -0,0 +1,293 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardImportError;
+import com.example.bankcards.dto.CardImportResponse;
+import com.example.bankcards.dto.CardImportRow;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepo;
+import com.example.bankcards.repository.LedgerRepo;
+import com.example.bankcards.repository.UserRepo;
+import com.example.bankcards.security.PanDigester;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for issuing cards in bulk from an uploaded file.
+ * Rows are read and validated as they arrive and collected into chunks. Each chunk resolves its owners
+ * with one query per kind of owner reference and inserts its cards and their opening ledger postings
+ * with JDBC batch statements, in its own transaction. A failed chunk does not undo the chunks before it.
+ */
+@Service
+public class CardImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CardImportService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_CHUNK_ATTEMPTS = 3;
+    private static final String CSV_HEADER = "user,number,expiry,balance";
+    private static final HexFormat HEX = HexFormat.of();
+    private static final Pattern UUID_PATTERN =
+            Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
+    private final CardRepo cardRepo;
+    private final UserRepo userRepo;
+    private final LedgerRepo ledgerRepo;
+    private final RetryingTransactionTemplate retryingTransactionTemplate;
+    private final CardStatsService cardStatsService;
+    private final PanDigester panDigester;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+
+    public CardImportService(CardRepo cardRepo,
+                             UserRepo userRepo,
+                             LedgerRepo ledgerRepo,
+                             RetryingTransactionTemplate retryingTransactionTemplate,
+                             CardStatsService cardStatsService,
+                             PanDigester panDigester,
+                             ObjectMapper objectMapper,
+                             Validator validator,
+                             @Value("${card.import.chunk-size:5000}") int chunkSize,
+                             @Value("${card.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.cardRepo = cardRepo;
+        this.userRepo = userRepo;
+        this.ledgerRepo = ledgerRepo;
+        this.retryingTransactionTemplate = retryingTransactionTemplate;
+        this.cardStatsService = cardStatsService;
+        this.panDigester = panDigester;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    /**
+     * Issues a card for every valid row of the input.
+     * CSV rows are {@code user,number,expiry,balance}, where user is a user ID or a username and a header line
+     * is optional; NDJSON rows are objects with the fields of {@link CardImportRow}.
+     *
+     * @param in the uploaded file; it is read to the end but not closed
+     * @param format the format of the file
+     * @return the numbers of issued and rejected cards and the first rejected rows
+     * @throws IOException if reading the input fails
+     */
+    public CardImportResponse importCards(InputStream in, StatementFormat format) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        Report report = new Report(maxReportedErrors);
+        List<PendingCard> chunk = new ArrayList<>(chunkSize);
+
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (lineNumber == 1 && format == StatementFormat.CSV && isCsvHeader(line))) {
+                continue;
+            }
+            CardImportRow row;
+            try {
+                row = parse(line, format);
+            } catch (IllegalArgumentException | DateTimeParseException | JsonProcessingException e) {
+                report.reject(lineNumber, "Malformed row");
+                continue;
+            }
+            String error = validate(row);
+            if (error != null) {
+                report.reject(lineNumber, error);
+                continue;
+            }
+            chunk.add(new PendingCard(lineNumber, row, panDigester.digest(row.getNumber())));
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, report);
+        }
+
+        logger.info("Card import finished: {} issued, {} rejected", report.imported, report.failed);
+        return new CardImportResponse(report.imported, report.failed, report.errors);
+    }
+
+    /**
+     * Inserts a chunk in its own transaction. A number committed by a concurrent insert after the chunk
+     * looked it up fails the whole batch on the unique index, so the chunk is run again and its fresh lookup
+     * rejects that row like any other taken number.
+     */
+    private void importChunk(List<PendingCard> chunk, Report report) {
+        List<CardImportError> rejected;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                rejected = retryingTransactionTemplate.execute("card-import", () -> insertChunk(chunk));
+                break;
+            } catch (RuntimeException e) {
+                if (CardRepo.isNumberTaken(e) && attempt < MAX_CHUNK_ATTEMPTS) {
+                    logger.debug("Card number taken concurrently, importing {} cards starting at line {} again",
+                            chunk.size(), chunk.get(0).line());
+                    continue;
+                }
+                logger.warn("Failed to import {} cards starting at line {}", chunk.size(), chunk.get(0).line(), e);
+                chunk.forEach(pending -> report.reject(pending.line(), "Import failed"));
+                return;
+            }
+        }
+        report.imported += chunk.size() - rejected.size();
+        rejected.forEach(error -> report.reject(error.getLine(), error.getError()));
+    }
+
+    /**
+     * Resolves the owners of a chunk and inserts the cards whose owner exists.
+     *
+     * Numbers already held by a card that is not deleted, or repeated within the chunk, are rejected
+     * with one lookup of the number digests.
+     *
+     * @return the rows rejected because their owner was not found or their number is taken
+     */
+    private List<CardImportError> insertChunk(List<PendingCard> chunk) {
+        Set<UUID> userIds = new HashSet<>();
+        Set<String> usernames = new HashSet<>();
+        for (PendingCard pending : chunk) {
+            if (pending.row().getUserId() != null) {
+                userIds.add(pending.row().getUserId());
+            } else {
+                usernames.add(pending.row().getUsername());
+            }
+        }
+        Map<UUID, User> usersById = userIds.isEmpty() ? Map.of() : userRepo.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<String, User> usersByName = usernames.isEmpty() ? Map.of() : userRepo.findAllByUsernameIn(usernames).stream()
+                .collect(Collectors.toMap(User::getUsername, Function.identity()));
+        Set<String> takenNumbers = new HashSet<>();
+        for (byte[] digest : cardRepo.findExistingNumberDigests(chunk.stream().map(PendingCard::numberDigest).toList())) {
+            takenNumbers.add(HEX.formatHex(digest));
+        }
+
+        List<Card> cards = new ArrayList<>(chunk.size());
+        List<CardImportError> rejected = new ArrayList<>();
+        for (PendingCard pending : chunk) {
+            CardImportRow row = pending.row();
+            User owner = row.getUserId() != null ? usersById.get(row.getUserId()) : usersByName.get(row.getUsername());
+            if (owner == null) {
+                rejected.add(new CardImportError(pending.line(), "User not found"));
+                continue;
+            }
+            if (!takenNumbers.add(HEX.formatHex(pending.numberDigest()))) {
+                rejected.add(new CardImportError(pending.line(), "Card number already exists"));
+                continue;
+            }
+            cards.add(Card.builder()
+                    .number(row.getNumber())
+                    .numberDigest(pending.numberDigest())
+                    .user(owner)
+                    .expiry(row.getExpiry())
+                    .balance(row.getBalance())
+                    .status(CardStatus.ACTIVE)
+                    .build());
+        }
+
+        if (!cards.isEmpty()) {
+            cardRepo.batchInsert(cards);
+            ledgerRepo.postOpenings(cards);
+            cardStatsService.recordCreated(cards);
+        }
+        return rejected;
+    }
+
+    private CardImportRow parse(String line, StatementFormat format) throws JsonProcessingException {
+        if (format == StatementFormat.NDJSON) {
+            return objectMapper.readValue(line, CardImportRow.class);
+        }
+        String[] fields = line.split(",", -1);
+        if (fields.length != 4) {
+            throw new IllegalArgumentException("Expected 4 fields but got " + fields.length);
+        }
+        String user = fields[0].trim();
+        CardImportRow row = new CardImportRow();
+        if (UUID_PATTERN.matcher(user).matches()) {
+            row.setUserId(UUID.fromString(user));
+        } else if (!user.isEmpty()) {
+            row.setUsername(user);
+        }
+        row.setNumber(fields[1].trim());
+        row.setExpiry(fields[2].isBlank() ? null : LocalDate.parse(fields[2].trim()));
+        row.setBalance(fields[3].isBlank() ? null : new BigDecimal(fields[3].trim()));
+        return row;
+    }
+
+    /**
+     * Checks a row against the constraints of {@link CardImportRow}.
+     *
+     * @return the violation messages, or null if the row is valid
+     */
+    private String validate(CardImportRow row) {
+        if (row.getUserId() == null && (row.getUsername() == null || row.getUsername().isBlank())) {
+            return "User ID or username is required";
+        }
+        Set<ConstraintViolation<CardImportRow>> violations = validator.validate(row);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted(Comparator.naturalOrder())
+                .collect(Collectors.joining("; "));
+    }
+
+    private static boolean isCsvHeader(String line) {
+        return line.replace(" ", "").equalsIgnoreCase(CSV_HEADER);
+    }
+
+    private record PendingCard(long line, CardImportRow row, byte[] numberDigest) {
+    }
+
+    /**
+     * Running totals of an import, keeping only the first rejected rows.
+     */
+    private static final class Report {
+
+        private final int maxErrors;
+        private final List<CardImportError> errors = new ArrayList<>();
+        private long imported;
+        private long failed;
+
+        private Report(int maxErrors) {
+            this.maxErrors = maxErrors;
+        }
+
+        private void reject(long line, String error) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new CardImportError(line, error));
+            }
+        }
+    }
+}
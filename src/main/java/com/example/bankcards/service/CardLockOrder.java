@@ -0,0 +1,33 @@
+package com.example.bankcards.service;
+
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Canonical order in which card rows are locked.
+ * Every code path that locks more than one card must lock them in this order, so that two
+ * transactions touching the same cards can never wait for each other in a cycle.
+ * The order matches PostgreSQL's uuid ordering (unsigned byte-wise comparison), so it agrees
+ * with queries that lock rows using {@code order by id}.
+ */
+public final class CardLockOrder {
+
+    /** Compares card IDs the same way PostgreSQL compares uuid values. */
+    public static final Comparator<UUID> COMPARATOR = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private CardLockOrder() {
+    }
+
+    /**
+     * Checks whether the first card has to be locked before the second one.
+     *
+     * @param first the UUID of the first card
+     * @param second the UUID of the second card
+     * @return true if the first card comes first in the canonical order
+     */
+    public static boolean locksFirst(UUID first, UUID second) {
+        return COMPARATOR.compare(first, second) <= 0;
+    }
+}
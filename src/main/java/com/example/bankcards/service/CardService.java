@@ -1,52 +1,96 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CardBatchGetResponse;
 import com.example.bankcards.dto.CardRequest;
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.CardSearchResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.CardRepo;
+import com.example.bankcards.repository.CardSearchFilter;
+import com.example.bankcards.repository.LedgerRepo;
 import com.example.bankcards.repository.UserRepo;
+import com.example.bankcards.security.PanDigester;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
  * Service class for managing bank cards.
  * Provides functionality to create, retrieve, update, delete, block, and activate cards.
+ * Card reads for clients are served from {@link CardCache}; every change here evicts the card from it
+ * and updates the dashboard counters of {@link CardStatsService} in the same transaction.
  */
 @Service
 @RequiredArgsConstructor
 public class CardService {
 
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     private final CardRepo cardRepo;
     private final UserRepo userRepo;
+    private final LedgerRepo ledgerRepo;
+    private final CardCache cardCache;
+    private final CardStatsService cardStatsService;
+    private final PanDigester panDigester;
 
     /**
-     * Creates a new card for a user.
+     * Creates a new card for a user and records its initial balance in the ledger.
      *
      * @param request the CardRequest containing card details
      * @return the created Card entity
      * @throws RuntimeException if the user is not found
+     * @throws IllegalArgumentException if a card that is not deleted already has this number,
+     *         including one inserted concurrently after the check
      */
+    @Transactional
     public Card createCard(CardRequest request) {
         User user = userRepo.findById(request.getUserId())
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+        byte[] numberDigest = panDigester.digest(request.getNumber());
+        if (cardRepo.existsByNumberDigest(numberDigest)) {
+            throw new IllegalArgumentException("Card number already exists");
+        }
+
         Card card = Card.builder()
                 .number(request.getNumber())
+                .numberDigest(numberDigest)
                 .user(user)
                 .expiry(request.getExpiry())
                 .balance(request.getBalance())
                 .status(CardStatus.ACTIVE)
                 .build();
 
-        return cardRepo.save(card);
+        Card saved;
+        try {
+            saved = cardRepo.saveAndFlush(card);
+        } catch (DataIntegrityViolationException e) {
+            if (CardRepo.isNumberTaken(e)) {
+                throw new IllegalArgumentException("Card number already exists");
+            }
+            throw e;
+        }
+        ledgerRepo.postOpening(saved.getId(), saved.getBalance());
+        cardStatsService.recordCreated(List.of(saved));
+        cardCache.evictAfterCommit(saved.getId());
+        return saved;
     }
 
     /**
@@ -67,35 +111,154 @@ public class CardService {
         return card;
     }
 
+    /**
+     * Retrieves a card by its full number with one lookup of the number digest.
+     *
+     * @param number the full card number
+     * @return the Card entity with its owner
+     * @throws RuntimeException if no card that is not deleted has this number
+     */
+    @Transactional(readOnly = true)
+    public Card getCardByNumber(String number) {
+        return cardRepo.findByNumberDigest(panDigester.digest(number))
+                .orElseThrow(() -> new RuntimeException("Card not found"));
+    }
+
+    /**
+     * Retrieves an immutable snapshot of a card, from the cache when possible.
+     * On a miss the card is read together with its owner. Reads never write:
+     * cards are marked EXPIRED by {@link CardExpiryService}.
+     *
+     * @param id the UUID of the card
+     * @return the CardSnapshot
+     * @throws RuntimeException if the card is not found or is deleted
+     */
+    public CardSnapshot getCardSnapshot(UUID id) {
+        return cardCache.get(id, key -> {
+            Card card = cardRepo.findWithUserById(key)
+                    .orElseThrow(() -> new RuntimeException("Card not found"));
+            if (card.getStatus() == CardStatus.DELETED) {
+                throw new RuntimeException("Card is deleted");
+            }
+            return CardSnapshot.of(card);
+        });
+    }
+
+    /**
+     * Retrieves many cards with one query, in the order of their first appearance in the given IDs.
+     * Repeated IDs are looked up once. Deleted cards and, for users, cards of other owners are filtered out
+     * by the query itself and reported as not found.
+     *
+     * @param ids      the UUIDs of the cards
+     * @param username the username of the caller
+     * @param admin    whether the caller can see the cards of any user
+     * @return CardBatchGetResponse with the cards found and the IDs that were not
+     */
+    @Transactional(readOnly = true)
+    public CardBatchGetResponse getCards(List<UUID> ids, String username, boolean admin) {
+        Set<UUID> requested = new LinkedHashSet<>(ids);
+        List<CardResponse> found = admin
+                ? cardRepo.findResponsesByIdIn(requested)
+                : cardRepo.findResponsesByIdInAndUsername(requested, username);
+        Map<UUID, CardResponse> byId = new HashMap<>(found.size() * 2);
+        for (CardResponse card : found) {
+            byId.put(card.getId(), card);
+        }
+
+        List<CardResponse> cards = new ArrayList<>(byId.size());
+        List<UUID> notFound = new ArrayList<>();
+        for (UUID id : requested) {
+            CardResponse card = byId.get(id);
+            if (card != null) {
+                cards.add(card);
+            } else {
+                notFound.add(id);
+            }
+        }
+        return new CardBatchGetResponse(cards, notFound);
+    }
+
     /**
      * Retrieves paginated cards belonging to a specific user.
+     * Each page is one projection query plus its count, in a read-only transaction.
      *
      * @param username the username of the card owner
      * @param page     the page number
      * @param size     the page size
-     * @return a Page of Card entities excluding deleted cards
-     * @throws RuntimeException if the user is not found
+     * @return a Page of CardResponse objects excluding deleted cards
      */
-    public Page<Card> getCardsByUser(String username, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size, Sort.by("expiry").descending());
-
-        User user = userRepo.findByUsername(username)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    @Transactional(readOnly = true)
+    public Page<CardResponse> getCardsByUser(String username, int page, int size) {
+        return cardRepo.findResponsesByUsernameAndStatusNot(username, CardStatus.DELETED, userCardsPage(page, size));
+    }
 
-        return cardRepo.findAllByUserAndStatusNot(user, CardStatus.DELETED, pageable);
+    /**
+     * Computes the entity tag of a page of a user's cards from the card versions alone,
+     * without loading the cards or building the page.
+     *
+     * @param username the username of the card owner
+     * @param page     the page number
+     * @param size     the page size
+     * @return the entity tag of the page returned by {@link #getCardsByUser} with the same arguments
+     */
+    @Transactional(readOnly = true)
+    public String getCardsEtagByUser(String username, int page, int size) {
+        return CardEtags.ofPage(
+                cardRepo.findVersionsByUsernameAndStatusNot(username, CardStatus.DELETED, userCardsPage(page, size)));
     }
 
     /**
      * Retrieves paginated cards by their status.
+     * Each page is one projection query plus its count, in a read-only transaction.
      *
      * @param status the CardStatus to filter
      * @param page   the page number
      * @param size   the page size
-     * @return a Page of Card entities
+     * @return a Page of CardResponse objects
      */
-    public Page<Card> getCardsByStatus(CardStatus status, int page, int size) {
+    @Transactional(readOnly = true)
+    public Page<CardResponse> getCardsByStatus(CardStatus status, int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("expiry").descending());
-        return cardRepo.findAllByStatus(status, pageable);
+        return cardRepo.findResponsesByStatus(status, pageable);
+    }
+
+    /**
+     * Searches cards by any combination of status, last 4 digits, owner and expiry range, one slice at a time.
+     * Slices are read with an (expiry, id) keyset instead of an offset and without a count query,
+     * so the cost of a slice does not depend on how deep it is.
+     *
+     * @param filter the filters to apply
+     * @param cursor cursor returned with the previous slice, or null for the first one
+     * @param size   the slice size
+     * @return CardSearchResponse with the slice and the cursor of the next one
+     * @throws IllegalArgumentException if the size, the last 4 digits or the cursor are invalid
+     */
+    @Transactional(readOnly = true)
+    public CardSearchResponse searchCards(CardSearchFilter filter, String cursor, int size) {
+        if (size < 1 || size > MAX_SEARCH_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_SEARCH_PAGE_SIZE);
+        }
+        if (filter.last4() != null && !filter.last4().matches("\\d{4}")) {
+            throw new IllegalArgumentException("Last 4 digits must be 4 digits");
+        }
+
+        CardCursor position = cursor == null ? null : CardCursor.decode(cursor);
+        Slice<CardResponse> slice = cardRepo.search(filter,
+                position == null ? null : position.expiry(),
+                position == null ? null : position.id(),
+                size);
+
+        List<CardResponse> items = slice.getContent();
+        String nextCursor = slice.hasNext() ? CardCursor.after(items.get(items.size() - 1)).encode() : null;
+        return new CardSearchResponse(items, nextCursor);
+    }
+
+    /**
+     * Pages a user's cards by expiry date, newest first, with the id as tie-breaker so that
+     * both the listing and its versions see the same cards on a page.
+     */
+    private static Pageable userCardsPage(int page, int size) {
+        return PageRequest.of(page, size, Sort.by("expiry").descending().and(Sort.by("id")));
     }
 
     /**
@@ -103,10 +266,14 @@ public class CardService {
      *
      * @param id the UUID of the card
      */
+    @Transactional
     public void deleteCard(UUID id) {
         Card card = getCard(id);
+        CardStatus previous = card.getStatus();
         card.setStatus(CardStatus.DELETED);
         cardRepo.save(card);
+        cardStatsService.recordStatusChange(card, previous);
+        cardCache.evictAfterCommit(id);
     }
 
     /**
@@ -114,34 +281,29 @@ public class CardService {
      *
      * @param id the UUID of the card
      */
+    @Transactional
     public void blockCard(UUID id) {
         Card card = getCard(id);
+        CardStatus previous = card.getStatus();
         card.setStatus(CardStatus.BLOCKED);
         cardRepo.save(card);
+        cardStatsService.recordStatusChange(card, previous);
+        cardCache.evictAfterCommit(id);
     }
 
     /**
-     * Activates a card.
+     * Activates a card. A card whose expiry date has passed becomes EXPIRED instead,
+     * since the expiry job has already moved past its date.
      *
      * @param id the UUID of the card
      */
+    @Transactional
     public void activateCard(UUID id) {
         Card card = getCard(id);
-        card.setStatus(CardStatus.ACTIVE);
+        CardStatus previous = card.getStatus();
+        card.setStatus(card.getExpiry().isBefore(LocalDate.now()) ? CardStatus.EXPIRED : CardStatus.ACTIVE);
         cardRepo.save(card);
-    }
-
-    /**
-     * Updates the card status to EXPIRED if the expiry date has passed.
-     *
-     * @param card the Card to check
-     * @return the updated Card entity
-     */
-    public Card updateCardStatusIfExpired(Card card) {
-        if (card.getStatus() != CardStatus.EXPIRED && card.getExpiry().isBefore(LocalDate.now())) {
-            card.setStatus(CardStatus.EXPIRED);
-            cardRepo.save(card);
-        }
-        return card;
+        cardStatsService.recordStatusChange(card, previous);
+        cardCache.evictAfterCommit(id);
     }
 }
@@ -0,0 +1,193 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Service class for hot cards whose inbound credits are spread over several balance shards.
+ * A sharded card keeps its main balance in the cards row and receives credits into N rows of
+ * card_balance_shards, chosen by the hash of the source card, so concurrent credits lock different rows.
+ * Debits and balance reads include the shards; a background job folds them back into the main balance.
+ * The lock order is always the card row first, then its shards.
+ */
+@Service
+public class CardShardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CardShardService.class);
+
+    static final int MAX_SHARDS = 64;
+
+    private final CardRepo cardRepo;
+    private final RetryingTransactionTemplate retryingTransactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Cache<UUID, Integer> shardCounts;
+
+    public CardShardService(CardRepo cardRepo,
+                            RetryingTransactionTemplate retryingTransactionTemplate,
+                            MeterRegistry meterRegistry,
+                            @Value("${card.sharding.layout-cache-ttl:5s}") Duration layoutCacheTtl) {
+        this.cardRepo = cardRepo;
+        this.retryingTransactionTemplate = retryingTransactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.shardCounts = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(layoutCacheTtl)
+                .build();
+    }
+
+    /**
+     * Tells whether a card is sharded, according to a short-lived local cache.
+     * The answer may be stale; callers must verify it once the card is locked or loaded.
+     *
+     * @param cardId the UUID of the card
+     * @return true if the card is known to be sharded
+     */
+    public boolean isSharded(UUID cardId) {
+        return shardCount(cardId) > 0;
+    }
+
+    /**
+     * Credits one shard of a card if it is active.
+     *
+     * @param cardId the UUID of the target card
+     * @param shardCount the number of shards the card is expected to have
+     * @param fromCardId the UUID of the source card, which selects the shard
+     * @param amount the amount to credit
+     * @return true if a shard was credited, false if the card is not active or its shard layout has changed
+     */
+    public boolean creditShard(UUID cardId, int shardCount, UUID fromCardId, BigDecimal amount) {
+        if (shardCount <= 0) {
+            return false;
+        }
+        int shard = Math.floorMod(fromCardId.hashCode(), shardCount);
+        if (cardRepo.creditShardIfActive(cardId, shard, amount) > 0) {
+            return true;
+        }
+        shardCounts.invalidate(cardId);
+        return false;
+    }
+
+    /**
+     * Credits one shard of a card whose shard count is taken from the local cache.
+     *
+     * @param cardId the UUID of the target card
+     * @param fromCardId the UUID of the source card, which selects the shard
+     * @param amount the amount to credit
+     * @return true if a shard was credited, false if the card is not sharded, not active or was resharded
+     */
+    public boolean creditShard(UUID cardId, UUID fromCardId, BigDecimal amount) {
+        return creditShard(cardId, shardCount(cardId), fromCardId, amount);
+    }
+
+    /**
+     * Makes sure the main balance of a card covers the amount, folding its shards into it if needed.
+     * The card must be locked, or version-checked on flush, by the current transaction.
+     *
+     * @param card the card about to be debited
+     * @param amount the amount to debit
+     */
+    public void ensureBalance(Card card, BigDecimal amount) {
+        if (card.getShardCount() > 0 && card.getBalance().compareTo(amount) < 0) {
+            fold(card);
+        }
+    }
+
+    /**
+     * Locks a card and folds its shards into the main balance if it is sharded.
+     * Used when a single-statement debit failed and the shards may hold the missing funds.
+     *
+     * @param cardId the UUID of the card
+     * @return true if anything was moved into the main balance
+     */
+    public boolean foldShards(UUID cardId) {
+        if (!isSharded(cardId)) {
+            return false;
+        }
+        return cardRepo.findByIdForUpdate(cardId)
+                .map(card -> {
+                    BigDecimal drained = fold(card);
+                    cardRepo.saveAndFlush(card);
+                    return drained.signum() != 0;
+                })
+                .orElse(false);
+    }
+
+    /**
+     * Changes the number of balance shards of a card. The current shards are folded into the main
+     * balance first, so no credit is lost; a count of 0 turns sharding off.
+     *
+     * @param cardId the UUID of the card
+     * @param count the new number of shards
+     * @return the updated card
+     * @throws IllegalArgumentException if the count is out of range
+     * @throws RuntimeException if the card is not found
+     */
+    public Card reshard(UUID cardId, int count) {
+        if (count < 0 || count > MAX_SHARDS) {
+            throw new IllegalArgumentException("Shard count must be between 0 and " + MAX_SHARDS);
+        }
+
+        Card card = retryingTransactionTemplate.execute("card-reshard", () -> {
+            Card locked = cardRepo.findByIdForUpdate(cardId)
+                    .orElseThrow(() -> new RuntimeException("Card not found"));
+            fold(locked);
+            cardRepo.deleteShards(cardId);
+            if (count > 0) {
+                cardRepo.createShards(cardId, count);
+            }
+            locked.setShardCount(count);
+            return cardRepo.save(locked);
+        });
+        shardCounts.invalidate(cardId);
+        logger.info("Card {} now has {} balance shards", cardId, count);
+        return card;
+    }
+
+    /**
+     * Folds the shards of every card with pending credits into its main balance,
+     * each card in its own short transaction.
+     */
+    @Scheduled(fixedDelayString = "${card.sharding.consolidate-interval-ms:1000}")
+    public void consolidate() {
+        List<UUID> cardIds = cardRepo.findIdsWithPendingShardBalance();
+        for (UUID cardId : cardIds) {
+            try {
+                retryingTransactionTemplate.execute("shard-consolidation", () ->
+                        cardRepo.findByIdForUpdate(cardId).map(this::fold).orElse(BigDecimal.ZERO));
+            } catch (RuntimeException e) {
+                logger.warn("Failed to consolidate balance shards of card {}", cardId, e);
+            }
+        }
+    }
+
+    /**
+     * Moves everything held by the shards of a locked card into its main balance.
+     *
+     * @return the amount moved
+     */
+    private BigDecimal fold(Card card) {
+        BigDecimal drained = cardRepo.drainShards(card.getId());
+        if (drained.signum() != 0) {
+            card.setBalance(card.getBalance().add(drained));
+            meterRegistry.counter("card.shards.folded").increment();
+        }
+        return drained;
+    }
+
+    private int shardCount(UUID cardId) {
+        return shardCounts.get(cardId, id -> cardRepo.findShardCountById(id).orElse(0));
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Immutable copy of the card fields shown to clients, safe to share between requests through {@link CardCache}.
+ * Carries the entity tag of the card, so conditional requests can be answered without building a response.
+ */
+public record CardSnapshot(UUID id,
+                           String maskedNumber,
+                           String ownerUsername,
+                           LocalDate expiry,
+                           CardStatus status,
+                           BigDecimal balance,
+                           String etag) {
+
+    /**
+     * Copies a card. The owner must be loaded or loadable.
+     *
+     * @param card the card to copy
+     * @return the snapshot
+     */
+    public static CardSnapshot of(Card card) {
+        return new CardSnapshot(
+                card.getId(),
+                card.getMaskedNumber(),
+                card.getUser().getUsername(),
+                card.getExpiry(),
+                card.getStatus(),
+                card.getTotalBalance(),
+                CardEtags.of(card.getVersion(), card.getShardBalance())
+        );
+    }
+
+    /**
+     * Converts the snapshot into a new response DTO.
+     *
+     * @return a CardResponse with the snapshot values
+     */
+    public CardResponse toResponse() {
+        return new CardResponse(id, maskedNumber, ownerUsername, expiry, status, balance);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardStatsResponse;
+import com.example.bankcards.dto.CardStatusStats;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardStatsDelta;
+import com.example.bankcards.repository.CardStatsRepo;
+import com.example.bankcards.repository.ChangedCard;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service class for the card statistics of the admin dashboard.
+ * Counters are changed in the same transaction as the cards they describe: when cards are issued,
+ * change status or expire. Transfers are only allowed between active cards, so they move balance
+ * within the ACTIVE total and never change the counters. A scheduled reconciliation compares the counters
+ * with the cards and corrects any drift, such as credits that reached a card's balance shards while it was
+ * changing status.
+ */
+@Service
+public class CardStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CardStatsService.class);
+
+    private final CardStatsRepo cardStatsRepo;
+    private final RetryingTransactionTemplate retryingTransactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+
+    @Autowired
+    public CardStatsService(CardStatsRepo cardStatsRepo,
+                            RetryingTransactionTemplate retryingTransactionTemplate,
+                            MeterRegistry meterRegistry) {
+        this(cardStatsRepo, retryingTransactionTemplate, meterRegistry, Clock.systemDefaultZone());
+    }
+
+    CardStatsService(CardStatsRepo cardStatsRepo,
+                     RetryingTransactionTemplate retryingTransactionTemplate,
+                     MeterRegistry meterRegistry,
+                     Clock clock) {
+        this.cardStatsRepo = cardStatsRepo;
+        this.retryingTransactionTemplate = retryingTransactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+    }
+
+    /**
+     * Counts newly issued cards. Must be called in the transaction that inserts them.
+     *
+     * @param cards the new cards
+     */
+    public void recordCreated(List<Card> cards) {
+        List<CardStatsDelta> deltas = new ArrayList<>(cards.size());
+        for (Card card : cards) {
+            deltas.add(new CardStatsDelta(card.getStatus(), card.getExpiry(), 1, card.getTotalBalance()));
+        }
+        cardStatsRepo.apply(deltas);
+    }
+
+    /**
+     * Moves a card from the counters of its previous status to those of its current one.
+     * Must be called in the transaction that changes the status.
+     *
+     * @param card the card with its new status
+     * @param previous the status the card had before
+     */
+    public void recordStatusChange(Card card, CardStatus previous) {
+        if (previous == card.getStatus()) {
+            return;
+        }
+        BigDecimal balance = card.getTotalBalance();
+        cardStatsRepo.apply(List.of(
+                new CardStatsDelta(previous, card.getExpiry(), -1, balance.negate()),
+                new CardStatsDelta(card.getStatus(), card.getExpiry(), 1, balance)));
+    }
+
+    /**
+     * Moves cards changed by a set-based update from the counters of their previous status to those of
+     * their current one. Must be called in the transaction that changes them.
+     *
+     * @param cards the changed cards
+     */
+    public void recordStatusChanges(List<ChangedCard> cards) {
+        List<CardStatsDelta> deltas = new ArrayList<>(cards.size() * 2);
+        for (ChangedCard card : cards) {
+            if (card.getPreviousStatus() == card.getStatus()) {
+                continue;
+            }
+            deltas.add(new CardStatsDelta(card.getPreviousStatus(), card.getExpiry(), -1, card.getBalance().negate()));
+            deltas.add(new CardStatsDelta(card.getStatus(), card.getExpiry(), 1, card.getBalance()));
+        }
+        cardStatsRepo.apply(deltas);
+    }
+
+    /**
+     * Reads the card counts and total balances by status and the number of cards expiring this month.
+     *
+     * @return the statistics, with an entry for every status
+     */
+    public CardStatsResponse getStats() {
+        LocalDate currentMonth = LocalDate.now(clock).withDayOfMonth(1);
+        Map<CardStatus, CardStatusStats> byStatus = new EnumMap<>(CardStatus.class);
+        for (CardStatus status : CardStatus.values()) {
+            byStatus.put(status, new CardStatusStats(status, 0, BigDecimal.ZERO));
+        }
+
+        long expiringThisMonth = 0;
+        for (CardStatsDelta counter : cardStatsRepo.findCounts()) {
+            CardStatusStats stats = byStatus.get(counter.status());
+            stats.setCount(stats.getCount() + counter.count());
+            if (counter.status() != CardStatus.DELETED && counter.expiry().equals(currentMonth)) {
+                expiringThisMonth += counter.count();
+            }
+        }
+        cardStatsRepo.findBalances().forEach((status, balance) -> byStatus.get(status).setTotalBalance(balance));
+        return new CardStatsResponse(List.copyOf(byStatus.values()), expiringThisMonth);
+    }
+
+    /**
+     * Compares the counters with the cards and corrects those that drifted.
+     * The cards are aggregated without any lock; only the differences are then added to the counters,
+     * in a short transaction that leaves the changes committed in the meantime in place.
+     */
+    @Scheduled(initialDelayString = "${card.stats.reconcile-initial-delay-ms:60000}",
+            fixedDelayString = "${card.stats.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        List<CardStatsDelta> drift = cardStatsRepo.findDrift();
+        if (!drift.isEmpty()) {
+            retryingTransactionTemplate.execute("card-stats-reconcile", () -> {
+                cardStatsRepo.apply(drift);
+                return null;
+            });
+            logger.warn("Corrected {} drifted card statistics counters", drift.size());
+        }
+        meterRegistry.counter("card.stats.corrected").increment(drift.size());
+        cardStatsRepo.deleteEmpty();
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.repository.IdempotencyRecordRepo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Service class that makes transfers idempotent with respect to a client supplied Idempotency-Key.
+ * Completed results are kept in a bounded in-memory cache in front of the idempotency_keys table,
+ * which is written in the same transaction as the transfer itself.
+ * Concurrent requests with the same key wait for the first one instead of executing again.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final TransferService transferService;
+    private final IdempotencyRecordRepo idempotencyRecordRepo;
+    private final Duration ttl;
+    private final long inFlightWaitMs;
+    private final Cache<String, StoredResult> cache;
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(TransferService transferService,
+                              IdempotencyRecordRepo idempotencyRecordRepo,
+                              @Value("${idempotency.ttl:24h}") Duration ttl,
+                              @Value("${idempotency.cache-size:100000}") long cacheSize,
+                              @Value("${idempotency.in-flight-wait-ms:10000}") long inFlightWaitMs) {
+        this.transferService = transferService;
+        this.idempotencyRecordRepo = idempotencyRecordRepo;
+        this.ttl = ttl;
+        this.inFlightWaitMs = inFlightWaitMs;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Performs a transfer at most once per user and Idempotency-Key.
+     *
+     * @param idempotencyKey the client supplied key
+     * @param username the username of the user initiating the transfer
+     * @param request the requested transfer
+     * @return the result of the original execution for this key
+     * @throws IllegalArgumentException if the key is invalid or was used for a different transfer
+     * @throws ConcurrencyFailureException if the original request is still running after the wait timeout
+     */
+    public TransferResponse transfer(String idempotencyKey, String username, TransferRequest request) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters long");
+        }
+
+        String id = username + ":" + idempotencyKey;
+        String requestHash = fingerprint(request);
+
+        StoredResult cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return cached.replay(requestHash);
+        }
+
+        InFlight mine = new InFlight(requestHash, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(id, mine);
+        if (running != null) {
+            return awaitRunning(running, requestHash);
+        }
+
+        try {
+            TransferResponse response = executeOnce(id, username, requestHash, request);
+            mine.result().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, mine);
+        }
+    }
+
+    /**
+     * Removes expired keys from the database. The in-memory cache expires entries by itself.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:600000}")
+    public void deleteExpiredKeys() {
+        int deleted = idempotencyRecordRepo.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            logger.info("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    /**
+     * Returns the stored result for the key, or executes the transfer and records it in the same transaction.
+     */
+    private TransferResponse executeOnce(String id, String username, String requestHash, TransferRequest request) {
+        Instant now = Instant.now();
+        StoredResult stored = idempotencyRecordRepo.findById(id)
+                .filter(r -> r.getExpiresAt().isAfter(now))
+                .map(StoredResult::of)
+                .orElse(null);
+        if (stored != null) {
+            cache.put(id, stored);
+            return stored.replay(requestHash);
+        }
+
+        try {
+            TransferResponse response = transferService.transfer(
+                    request.getFromCardId(),
+                    request.getToCardId(),
+                    request.getAmount(),
+                    username,
+                    completed -> record(id, username, requestHash, completed)
+            );
+            cache.put(id, new StoredResult(requestHash, response));
+            return response;
+        } catch (DuplicateKeyException e) {
+            // Another node recorded the same key first; its transfer is the one that counts.
+            StoredResult winner = idempotencyRecordRepo.findById(id)
+                    .map(StoredResult::of)
+                    .orElseThrow(() -> e);
+            cache.put(id, winner);
+            return winner.replay(requestHash);
+        }
+    }
+
+    /**
+     * Writes the idempotency record inside the transfer transaction.
+     */
+    private void record(String id, String username, String requestHash, TransferResponse response) {
+        Instant now = Instant.now();
+        int written = idempotencyRecordRepo.insertIfAbsent(id, username, requestHash,
+                response.getId(), response.getFromCardId(), response.getToCardId(), response.getAmount(),
+                now, now.plus(ttl));
+        if (written == 0) {
+            throw new DuplicateKeyException("Idempotency-Key " + id + " is already recorded");
+        }
+    }
+
+    private TransferResponse awaitRunning(InFlight running, String requestHash) {
+        if (!running.requestHash().equals(requestHash)) {
+            throw new IllegalArgumentException("Idempotency-Key was already used for a different transfer");
+        }
+        try {
+            return running.result().get(inFlightWaitMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new ConcurrencyFailureException("A request with the same Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original request", e);
+        }
+    }
+
+    /**
+     * Computes a stable fingerprint of the transfer parameters.
+     */
+    static String fingerprint(TransferRequest request) {
+        String canonical = request.getFromCardId() + "|" + request.getToCardId() + "|"
+                + request.getAmount().stripTrailingZeros().toPlainString();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A completed result together with the fingerprint of the request that produced it.
+     */
+    private record StoredResult(String requestHash, TransferResponse response) {
+
+        static StoredResult of(IdempotencyRecord record) {
+            return new StoredResult(record.getRequestHash(), new TransferResponse(
+                    record.getTransferId(),
+                    record.getFromCardId(),
+                    record.getToCardId(),
+                    record.getAmount()
+            ));
+        }
+
+        TransferResponse replay(String requestHash) {
+            if (!this.requestHash.equals(requestHash)) {
+                throw new IllegalArgumentException("Idempotency-Key was already used for a different transfer");
+            }
+            return response;
+        }
+    }
+
+    /**
+     * A request that is currently being executed on this node.
+     */
+    private record InFlight(String requestHash, CompletableFuture<TransferResponse> result) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.LedgerBalanceResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepo;
+import com.example.bankcards.repository.LedgerRepo;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Service class for reading the ledger and maintaining its balance snapshots.
+ * Postings are written by {@link TransferService} and {@link CardService} in the same transaction
+ * as the balance change they record.
+ */
+@Service
+@RequiredArgsConstructor
+public class LedgerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerService.class);
+
+    private final CardRepo cardRepo;
+    private final LedgerRepo ledgerRepo;
+
+    /**
+     * Reads the ledger balance of a card together with its stored balance from one database snapshot.
+     *
+     * @param cardId the UUID of the card
+     * @return both balances and whether they agree
+     * @throws RuntimeException if the card is not found
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public LedgerBalanceResponse getBalance(UUID cardId) {
+        Card card = cardRepo.findById(cardId)
+                .orElseThrow(() -> new RuntimeException("Card not found"));
+        BigDecimal ledgerBalance = ledgerRepo.balance(cardId);
+        BigDecimal cardBalance = card.getTotalBalance();
+        return new LedgerBalanceResponse(cardId, ledgerBalance, cardBalance, ledgerBalance.compareTo(cardBalance) == 0);
+    }
+
+    /**
+     * Advances the balance snapshots of all cards with new postings.
+     * Only postings of transactions older than every transaction still in flight are folded in,
+     * so a posting whose transaction commits late is picked up by a later run.
+     */
+    @Scheduled(fixedDelayString = "${ledger.snapshot-interval-ms:60000}")
+    public void takeSnapshots() {
+        int written = ledgerRepo.takeSnapshots();
+        if (written > 0) {
+            logger.info("Advanced {} ledger snapshots", written);
+        }
+    }
+}
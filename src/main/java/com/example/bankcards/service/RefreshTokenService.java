@@ -0,0 +1,180 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.AuthResponse;
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.repository.RefreshTokenRepo;
+import com.example.bankcards.repository.RevokedTokenRepo;
+import com.example.bankcards.security.JwtProvider;
+import com.example.bankcards.security.RevokedTokenTable;
+import com.example.bankcards.security.SecurityUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Service class for issuing, rotating and revoking refresh tokens.
+ * A login issues a short-lived access token together with an opaque refresh token, of which only the digest
+ * is stored. Each refresh consumes the refresh token and issues a new pair in the same family, without
+ * checking the password again. Presenting a refresh token that was already consumed means it leaked:
+ * the whole family is revoked, together with the access tokens issued with it.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final RefreshTokenRepo refreshTokenRepo;
+    private final RevokedTokenRepo revokedTokenRepo;
+    private final UserDetailsService userDetailsService;
+    private final JwtProvider jwtProvider;
+    private final RevokedTokenTable revokedTokenTable;
+    private final Duration refreshTokenLifetime;
+
+    public RefreshTokenService(RefreshTokenRepo refreshTokenRepo,
+                               RevokedTokenRepo revokedTokenRepo,
+                               UserDetailsService userDetailsService,
+                               JwtProvider jwtProvider,
+                               RevokedTokenTable revokedTokenTable,
+                               @Value("${jwt.refresh.expiry:30d}") Duration refreshTokenLifetime) {
+        this.refreshTokenRepo = refreshTokenRepo;
+        this.revokedTokenRepo = revokedTokenRepo;
+        this.userDetailsService = userDetailsService;
+        this.jwtProvider = jwtProvider;
+        this.revokedTokenTable = revokedTokenTable;
+        this.refreshTokenLifetime = refreshTokenLifetime;
+    }
+
+    /**
+     * Issues the tokens of a user who just logged in, starting a new family.
+     *
+     * @param user the authenticated user
+     * @return the access token and the refresh token
+     */
+    @Transactional
+    public AuthResponse issue(SecurityUser user) {
+        return issue(user, UUID.randomUUID(), Instant.now());
+    }
+
+    /**
+     * Consumes a refresh token and issues a new pair of tokens with the current roles of the user.
+     * The family is revoked if the token was already consumed or if the user was disabled or deleted.
+     *
+     * @param refreshToken the refresh token
+     * @return the new access token and refresh token
+     * @throws BadCredentialsException if the token is unknown, consumed, expired or its user cannot log in
+     */
+    @Transactional(noRollbackFor = BadCredentialsException.class)
+    public AuthResponse refresh(String refreshToken) {
+        Instant now = Instant.now();
+        RefreshToken current = refreshTokenRepo.findByTokenHash(digest(refreshToken))
+                .orElseThrow(() -> new BadCredentialsException("Invalid refresh token"));
+        if (current.getRevokedAt() != null) {
+            logger.warn("Consumed refresh token of {} presented again, revoking its family", current.getUsername());
+            revokeFamily(current.getFamilyId(), now);
+            throw new BadCredentialsException("Invalid refresh token");
+        }
+        if (!current.getExpiresAt().isAfter(now)) {
+            throw new BadCredentialsException("Refresh token expired");
+        }
+
+        SecurityUser user = loadUser(current.getUsername());
+        if (user == null || !user.isEnabled()) {
+            revokeFamily(current.getFamilyId(), now);
+            throw new BadCredentialsException("User is disabled or no longer exists");
+        }
+
+        current.setRevokedAt(now);
+        return issue(user, current.getFamilyId(), now);
+    }
+
+    /**
+     * Revokes the family of a refresh token and the access tokens issued with it.
+     * Unknown tokens are ignored, so that logging out twice succeeds.
+     *
+     * @param refreshToken the refresh token
+     */
+    @Transactional
+    public void logout(String refreshToken) {
+        refreshTokenRepo.findByTokenHash(digest(refreshToken))
+                .ifPresent(token -> revokeFamily(token.getFamilyId(), Instant.now()));
+    }
+
+    /**
+     * Removes expired refresh tokens and revoked access tokens from the database.
+     */
+    @Scheduled(fixedDelayString = "${jwt.refresh.cleanup-interval-ms:600000}")
+    public void deleteExpiredTokens() {
+        Instant now = Instant.now();
+        int refreshTokens = refreshTokenRepo.deleteExpired(now);
+        int revokedTokens = revokedTokenRepo.deleteExpired(now);
+        if (refreshTokens > 0 || revokedTokens > 0) {
+            logger.info("Deleted {} expired refresh tokens and {} expired revoked tokens", refreshTokens, revokedTokens);
+        }
+    }
+
+    private AuthResponse issue(SecurityUser user, UUID familyId, Instant now) {
+        JwtProvider.IssuedToken accessToken = jwtProvider.generateToken(user.getUsername(),
+                user.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList(),
+                user.getSecurityVersion());
+
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String refreshToken = ENCODER.encodeToString(bytes);
+
+        refreshTokenRepo.save(RefreshToken.builder()
+                .id(UUID.randomUUID())
+                .tokenHash(digest(refreshToken))
+                .username(user.getUsername())
+                .familyId(familyId)
+                .accessTokenId(accessToken.tokenId())
+                .accessExpiresAt(accessToken.expiresAt())
+                .createdAt(now)
+                .expiresAt(now.plus(refreshTokenLifetime))
+                .build());
+        return new AuthResponse(accessToken.value(), refreshToken);
+    }
+
+    private void revokeFamily(UUID familyId, Instant now) {
+        refreshTokenRepo.revokeFamily(familyId, now);
+        refreshTokenRepo.revokeAccessTokens(familyId);
+        refreshTokenRepo.findByFamilyIdAndAccessExpiresAtAfter(familyId, now)
+                .forEach(token -> revokedTokenTable.revoke(token.getAccessTokenId(), token.getAccessExpiresAt()));
+    }
+
+    private SecurityUser loadUser(String username) {
+        try {
+            return (SecurityUser) userDetailsService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException ex) {
+            return null;
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
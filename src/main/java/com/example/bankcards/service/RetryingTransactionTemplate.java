@@ -0,0 +1,118 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs an action in its own transaction and re-runs it when the transaction fails
+ * because of a concurrent update: an optimistic lock failure, a PostgreSQL deadlock (SQLSTATE 40P01)
+ * or a serialization failure (SQLSTATE 40001).
+ * Retries are bounded and separated by an exponential backoff with full jitter.
+ * Executions, conflicts, retries and exhausted retries are exported as metrics tagged by operation.
+ */
+@Component
+public class RetryingTransactionTemplate {
+
+    private static final String DEADLOCK_DETECTED = "40P01";
+    private static final String SERIALIZATION_FAILURE = "40001";
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${transfer.retry.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    @Value("${transfer.retry.initial-backoff-ms:2}")
+    private long initialBackoffMs = 2;
+
+    @Value("${transfer.retry.max-backoff-ms:50}")
+    private long maxBackoffMs = 50;
+
+    public RetryingTransactionTemplate(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Executes the action in a new transaction, retrying it on concurrent update failures.
+     *
+     * @param operation the name of the operation, used as a metric tag
+     * @param action the action to run inside the transaction
+     * @return the result of the action
+     * @throws RuntimeException the last failure if retries are exhausted, or any non-retryable failure
+     */
+    public <T> T execute(String operation, Supplier<T> action) {
+        meterRegistry.counter("tx.executions", "operation", operation).increment();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (RuntimeException e) {
+                String reason = retryReason(e);
+                if (reason == null) {
+                    throw e;
+                }
+
+                meterRegistry.counter("tx.conflicts", "operation", operation, "reason", reason).increment();
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("tx.retries.exhausted", "operation", operation, "reason", reason).increment();
+                    throw e;
+                }
+
+                meterRegistry.counter("tx.retries", "operation", operation, "reason", reason).increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Classifies a failure.
+     *
+     * @param e the failure
+     * @return the retry reason, or null if the failure must not be retried
+     */
+    private String retryReason(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException) {
+                String sqlState = sqlException.getSQLState();
+                if (DEADLOCK_DETECTED.equals(sqlState)) {
+                    return "deadlock";
+                }
+                if (SERIALIZATION_FAILURE.equals(sqlState)) {
+                    return "serialization_failure";
+                }
+            }
+            if (cause instanceof OptimisticLockingFailureException || cause instanceof OptimisticLockException) {
+                return "optimistic_lock";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sleeps for a random time between zero and an exponentially growing, capped bound.
+     *
+     * @param attempt the number of the attempt that just failed, starting from 1
+     */
+    private void backoff(int attempt) {
+        long bound = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        if (bound <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.bankcards.service;
+
+import java.util.Locale;
+
+/**
+ * Line-oriented formats supported by the card statement export and the bulk card import.
+ */
+public enum StatementFormat {
+
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    StatementFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Parses a format name, ignoring case.
+     *
+     * @param name the format name, e.g. csv or ndjson
+     * @return the matching format
+     * @throws IllegalArgumentException if the format is not supported
+     */
+    public static StatementFormat from(String name) {
+        for (StatementFormat format : values()) {
+            if (format.name().equals(name.toUpperCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported statement format: " + name);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferHistoryItem;
+import com.example.bankcards.repository.CardRepo;
+import com.example.bankcards.repository.TransferRepo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Service class for exporting card statements.
+ * Transfers are read through a database cursor and written to the output as they arrive,
+ * so memory use does not depend on the number of exported transfers.
+ */
+@Service
+@RequiredArgsConstructor
+public class StatementService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "id,from_card_id,to_card_id,amount,created_at\n";
+
+    private final CardRepo cardRepo;
+    private final TransferRepo transferRepo;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Checks that the user may export the statement of a card.
+     * Users can only export their own cards; admins can export any card.
+     *
+     * @param cardId the UUID of the card
+     * @param username the username of the user asking
+     * @param admin whether the user is an admin
+     * @throws RuntimeException if the card does not exist or is not visible to the user
+     */
+    public void checkAccess(UUID cardId, String username, boolean admin) {
+        if (admin ? !cardRepo.existsById(cardId) : !cardRepo.existsByIdAndUserUsername(cardId, username)) {
+            throw new RuntimeException("Card not found");
+        }
+    }
+
+    /**
+     * Writes all transfers of a card, oldest first, to the output stream.
+     * The read-only transaction keeps the database cursor open while rows are written.
+     *
+     * @param cardId the UUID of the card
+     * @param format the output format
+     * @param gzip whether to compress the output
+     * @param out the stream to write to; it is flushed but not closed
+     * @return the number of exported transfers
+     * @throws IOException if writing to the output fails
+     */
+    @Transactional(readOnly = true)
+    public long export(UUID cardId, StatementFormat format, boolean gzip, OutputStream out) throws IOException {
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(compressed != null ? compressed : out, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        long count = 0;
+        if (format == StatementFormat.CSV) {
+            writer.write(CSV_HEADER);
+        }
+        try (Stream<TransferHistoryItem> transfers = transferRepo.streamByCard(cardId)) {
+            Iterator<TransferHistoryItem> iterator = transfers.iterator();
+            while (iterator.hasNext()) {
+                write(writer, format, iterator.next());
+                count++;
+            }
+        }
+
+        writer.flush();
+        if (compressed != null) {
+            compressed.finish();
+        }
+        out.flush();
+        logger.debug("Exported {} transfers of card {} as {}", count, cardId, format);
+        return count;
+    }
+
+    private void write(Writer writer, StatementFormat format, TransferHistoryItem item) throws IOException {
+        switch (format) {
+            case CSV -> {
+                writer.write(item.getId().toString());
+                writer.write(',');
+                writer.write(item.getFromCardId().toString());
+                writer.write(',');
+                writer.write(item.getToCardId().toString());
+                writer.write(',');
+                writer.write(item.getAmount().toPlainString());
+                writer.write(',');
+                writer.write(item.getCreatedAt().toString());
+                writer.write('\n');
+            }
+            case NDJSON -> {
+                writer.write(objectMapper.writeValueAsString(item));
+                writer.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.bankcards.service;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * A single transfer to be executed as part of a batch.
+ *
+ * @param id         the UUID to assign to the transfer, or null to generate one
+ * @param fromCardId the UUID of the source card
+ * @param toCardId   the UUID of the target card
+ * @param amount     the transfer amount
+ * @param username   the username of the user initiating the transfer
+ */
+public record TransferCommand(UUID id, UUID fromCardId, UUID toCardId, BigDecimal amount, String username) {
+}
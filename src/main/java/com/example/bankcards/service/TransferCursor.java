@@ -0,0 +1,69 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferHistoryItem;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Keyset position in a transfer history ordered by (createdAt, id) descending.
+ * Encoded as an opaque URL-safe string for clients.
+ *
+ * @param createdAt creation timestamp of the last returned transfer
+ * @param id        UUID of the last returned transfer
+ */
+public record TransferCursor(Instant createdAt, UUID id) {
+
+    /** Position before the newest possible transfer. */
+    public static final TransferCursor START = new TransferCursor(
+            Instant.parse("9999-12-31T23:59:59Z"), new UUID(-1L, -1L));
+
+    /** Newest first, ties broken by id in PostgreSQL uuid order, as in the history queries. */
+    public static final Comparator<TransferHistoryItem> NEWEST_FIRST = Comparator
+            .comparing(TransferHistoryItem::getCreatedAt)
+            .thenComparing(TransferHistoryItem::getId, CardLockOrder.COMPARATOR)
+            .reversed();
+
+    /**
+     * Creates a cursor pointing right after the given item.
+     *
+     * @param item the last item of a page
+     * @return the cursor for the next page
+     */
+    public static TransferCursor after(TransferHistoryItem item) {
+        return new TransferCursor(item.getCreatedAt(), item.getId());
+    }
+
+    /**
+     * Decodes a cursor received from a client.
+     *
+     * @param value the encoded cursor
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the value is not a valid cursor
+     */
+    public static TransferCursor decode(String value) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf('|');
+            return new TransferCursor(
+                    Instant.parse(decoded.substring(0, separator)),
+                    UUID.fromString(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Encodes the cursor for clients.
+     *
+     * @return the opaque cursor string
+     */
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
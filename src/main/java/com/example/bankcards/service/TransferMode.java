@@ -0,0 +1,16 @@
+package com.example.bankcards.service;
+
+/**
+ * Enum representing the strategy TransferService uses to move money between cards.
+ */
+public enum TransferMode {
+
+    /** Loads both cards with a pessimistic write lock and updates them through JPA. */
+    PESSIMISTIC,
+
+    /** Loads both cards without locks and relies on the version check at commit, retrying on conflicts. */
+    OPTIMISTIC,
+
+    /** Applies the debit and the credit as single conditional UPDATE statements without loading entities. */
+    CONDITIONAL_UPDATE
+}
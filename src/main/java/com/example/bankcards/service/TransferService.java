@@ -1,31 +1,66 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferItemResponse;
+import com.example.bankcards.dto.BatchTransferResponse;
+import com.example.bankcards.dto.TransferHistoryItem;
+import com.example.bankcards.dto.TransferHistoryResponse;
+import com.example.bankcards.dto.TransferRequest;
 import com.example.bankcards.dto.TransferResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.Transfer;
 import com.example.bankcards.repository.CardRepo;
+import com.example.bankcards.repository.LedgerRepo;
 import com.example.bankcards.repository.TransferRepo;
-import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service class for handling money transfers between cards.
- * Provides functionality to perform a transfer from one user's card to another.
+ * Provides functionality to perform a transfer from one user's card to another,
+ * either one at a time or as a batch applied in a single transaction.
+ * Single transfers are executed according to the configured {@link TransferMode}.
+ * Credits to sharded cards go to their balance shards, see {@link CardShardService}.
+ * Every transfer is also recorded in the append-only ledger in the same transaction.
+ * Also serves the keyset-paginated transfer history of a card.
  */
 @Service
 @RequiredArgsConstructor
 public class TransferService {
 
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+
     private final CardRepo cardRepo;
     private final TransferRepo transferRepo;
+    private final LedgerRepo ledgerRepo;
+    private final RetryingTransactionTemplate retryingTransactionTemplate;
+    private final CardShardService cardShardService;
+    private final CardCache cardCache;
+
+    @Value("${transfer.mode:PESSIMISTIC}")
+    private TransferMode mode = TransferMode.PESSIMISTIC;
 
     /**
      * Transfers money from one card to another.
+     * The transfer runs in its own transaction, which is retried on concurrent update conflicts.
      *
      * @param fromCardId the UUID of the source card
      * @param toCardId the UUID of the target card
@@ -34,39 +69,97 @@ public class TransferService {
      * @return a TransferResponse containing details of the completed transfer
      * @throws RuntimeException if any validation fails
      */
-    @Transactional(rollbackFor = Exception.class)
     public TransferResponse transfer(UUID fromCardId, UUID toCardId, BigDecimal amount, String username) {
+        return transfer(fromCardId, toCardId, amount, username, response -> {});
+    }
+
+    /**
+     * Transfers money from one card to another and runs a callback in the same transaction,
+     * so that anything it writes is committed or rolled back together with the transfer.
+     *
+     * @param fromCardId the UUID of the source card
+     * @param toCardId the UUID of the target card
+     * @param amount the transfer amount
+     * @param username the username of the user initiating the transfer
+     * @param inTransaction callback receiving the completed transfer before commit
+     * @return a TransferResponse containing details of the completed transfer
+     * @throws RuntimeException if any validation fails or the callback fails
+     */
+    public TransferResponse transfer(UUID fromCardId, UUID toCardId, BigDecimal amount, String username,
+                                     Consumer<TransferResponse> inTransaction) {
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new RuntimeException("Amount must be greater than zero");
         }
 
-        Card fromCard = cardRepo.findByIdForUpdate(fromCardId)
-                .orElseThrow(() -> new RuntimeException("Card not found"));
-        Card toCard = cardRepo.findByIdForUpdate(toCardId)
-                .orElseThrow(() -> new RuntimeException("Card not found"));
+        TransferResponse completed = retryingTransactionTemplate.execute("transfer", () -> {
+            TransferResponse response = switch (mode) {
+                case PESSIMISTIC -> {
+                    boolean shardedTarget = cardShardService.isSharded(toCardId);
+                    yield transferWithEntities(fromCardId, toCardId, amount, username,
+                            lockInCanonicalOrder(fromCardId, toCardId, shardedTarget)::get, shardedTarget);
+                }
+                case OPTIMISTIC -> transferWithEntities(fromCardId, toCardId, amount, username, cardRepo::findById, true);
+                case CONDITIONAL_UPDATE -> transferWithConditionalUpdates(fromCardId, toCardId, amount, username);
+            };
+            inTransaction.accept(response);
+            return response;
+        });
+        cardCache.evictAfterCommit(List.of(fromCardId, toCardId));
+        return completed;
+    }
 
-        if (!fromCard.getStatus().equals(CardStatus.ACTIVE)
-                || !toCard.getStatus().equals(CardStatus.ACTIVE)) {
-            throw new RuntimeException("Both cards must be active");
-        }
+    /**
+     * Locks both cards in the canonical {@link CardLockOrder}, regardless of the transfer direction.
+     * The source card always gets a write lock. A sharded target only gets a shared lock,
+     * so credits to it do not wait for each other.
+     *
+     * @return the lookup result of every card, keyed by its ID
+     * @throws OptimisticLockingFailureException if the target was expected to be sharded but no longer is
+     */
+    private Map<UUID, Optional<Card>> lockInCanonicalOrder(UUID fromCardId, UUID toCardId, boolean shardedTarget) {
+        Function<UUID, Optional<Card>> lock = id -> shardedTarget && id.equals(toCardId) && !id.equals(fromCardId)
+                ? cardRepo.findByIdForShare(id)
+                : cardRepo.findByIdForUpdate(id);
 
-        if (!fromCard.getUser().getUsername().equals(username)) {
-            throw new RuntimeException("You can only transfer from your own card");
-        }
+        Map<UUID, Optional<Card>> locked = new HashMap<>();
+        UUID first = CardLockOrder.locksFirst(fromCardId, toCardId) ? fromCardId : toCardId;
+        UUID second = first.equals(fromCardId) ? toCardId : fromCardId;
+        locked.put(first, lock.apply(first));
+        locked.computeIfAbsent(second, lock);
 
-        if (fromCardId.equals(toCardId)) {
-            throw new RuntimeException("Cannot transfer to the same card");
+        if (shardedTarget && locked.get(toCardId).filter(card -> card.getShardCount() == 0).isPresent()) {
+            throw new OptimisticLockingFailureException("Card " + toCardId + " is no longer sharded");
         }
+        return locked;
+    }
 
-        if (fromCard.getBalance().compareTo(amount) < 0) {
-            throw new RuntimeException("Insufficient funds");
-        }
+    /**
+     * Transfers money by loading both cards and updating them through JPA.
+     * With a locking loader the rows are held until commit; with a plain loader
+     * the version check on flush detects concurrent updates instead.
+     * If shard credits are allowed and the target is sharded, its card row is not updated at all.
+     */
+    private TransferResponse transferWithEntities(UUID fromCardId, UUID toCardId, BigDecimal amount, String username,
+                                                  Function<UUID, Optional<Card>> loader, boolean creditShards) {
+        Card fromCard = loader.apply(fromCardId)
+                .orElseThrow(() -> new RuntimeException("Card not found"));
+        Card toCard = loader.apply(toCardId)
+                .orElseThrow(() -> new RuntimeException("Card not found"));
 
-        fromCard.setBalance(fromCard.getBalance().subtract(amount));
-        toCard.setBalance(toCard.getBalance().add(amount));
+        cardShardService.ensureBalance(fromCard, amount);
+        validateTransfer(fromCard, toCard, amount, username);
 
+        fromCard.setBalance(fromCard.getBalance().subtract(amount));
         cardRepo.save(fromCard);
-        cardRepo.save(toCard);
+
+        if (creditShards && toCard.getShardCount() > 0) {
+            if (!cardShardService.creditShard(toCardId, toCard.getShardCount(), fromCardId, amount)) {
+                throw new OptimisticLockingFailureException("Shards of card " + toCardId + " have changed");
+            }
+        } else {
+            toCard.setBalance(toCard.getBalance().add(amount));
+            cardRepo.save(toCard);
+        }
 
         Transfer transfer = Transfer.builder()
                 .fromCard(fromCard)
@@ -75,6 +168,7 @@ public class TransferService {
                 .build();
 
         Transfer savedTransfer = transferRepo.save(transfer);
+        ledgerRepo.postTransfers(List.of(savedTransfer));
 
         return new TransferResponse(
                 savedTransfer.getId(),
@@ -83,4 +177,235 @@ public class TransferService {
                 savedTransfer.getAmount()
         );
     }
+
+    /**
+     * Transfers money with one conditional debit UPDATE, one credit UPDATE and a plain insert,
+     * without loading any entity.
+     * If a statement affects no rows, the cards are read to report the same error as the JPA path,
+     * and the transaction is rolled back.
+     */
+    private TransferResponse transferWithConditionalUpdates(UUID fromCardId, UUID toCardId, BigDecimal amount, String username) {
+        if (fromCardId.equals(toCardId)) {
+            throw new RuntimeException("Cannot transfer to the same card");
+        }
+
+        // Statements take row locks, so they are issued in the canonical card order.
+        boolean applied = CardLockOrder.locksFirst(fromCardId, toCardId)
+                ? debit(fromCardId, amount, username) && credit(toCardId, fromCardId, amount)
+                : credit(toCardId, fromCardId, amount) && debit(fromCardId, amount, username);
+        if (!applied) {
+            throw rejectionReason(fromCardId, toCardId, amount, username);
+        }
+
+        Transfer transfer = Transfer.builder()
+                .id(UUID.randomUUID())
+                .fromCard(Card.builder().id(fromCardId).build())
+                .toCard(Card.builder().id(toCardId).build())
+                .amount(amount)
+                .build();
+        transferRepo.insert(transfer);
+        ledgerRepo.postTransfers(List.of(transfer));
+
+        return new TransferResponse(transfer.getId(), fromCardId, toCardId, amount);
+    }
+
+    /**
+     * Debits a card with a conditional update. If the main balance of a sharded card is short,
+     * its shards are folded in and the debit is tried once more.
+     */
+    private boolean debit(UUID cardId, BigDecimal amount, String username) {
+        return cardRepo.debitIfAllowed(cardId, amount, username) > 0
+                || cardShardService.foldShards(cardId) && cardRepo.debitIfAllowed(cardId, amount, username) > 0;
+    }
+
+    /**
+     * Credits a card with a single update: one of its shards if it is sharded, otherwise the card row.
+     * The card row is also the fallback when the shard layout changed, since crediting it is always correct.
+     */
+    private boolean credit(UUID cardId, UUID fromCardId, BigDecimal amount) {
+        return cardShardService.isSharded(cardId) && cardShardService.creditShard(cardId, fromCardId, amount)
+                || cardRepo.creditIfActive(cardId, amount) > 0;
+    }
+
+    /**
+     * Explains why a conditional update affected no rows.
+     */
+    private RuntimeException rejectionReason(UUID fromCardId, UUID toCardId, BigDecimal amount, String username) {
+        try {
+            Card fromCard = cardRepo.findById(fromCardId)
+                    .orElseThrow(() -> new RuntimeException("Card not found"));
+            Card toCard = cardRepo.findById(toCardId)
+                    .orElseThrow(() -> new RuntimeException("Card not found"));
+            validateTransfer(fromCard, toCard, amount, username);
+            return new RuntimeException("Transfer could not be applied");
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Transfers money for every item of a batch initiated by a single user.
+     *
+     * @param requests the transfers to perform, applied in the given order
+     * @param username the username of the user initiating the transfers
+     * @return a BatchTransferResponse with the result of every item
+     */
+    public BatchTransferResponse transferBatch(List<TransferRequest> requests, String username) {
+        List<TransferCommand> commands = requests.stream()
+                .map(r -> new TransferCommand(null, r.getFromCardId(), r.getToCardId(), r.getAmount(), username))
+                .toList();
+        return BatchTransferResponse.of(executeBatch(commands));
+    }
+
+    /**
+     * Executes a batch of transfers in a single transaction.
+     * Every card touched by the batch is locked once, in the canonical {@link CardLockOrder}, then all
+     * balance changes are applied in memory and the transfer rows are written with JDBC batch inserts.
+     * A failing item does not affect the others: its balances are left untouched and the reason is reported.
+     * The whole batch is retried if the transaction fails on a concurrency conflict.
+     *
+     * @param commands the transfers to perform, applied in the given order
+     * @return the result of every command, in the same order
+     */
+    public List<BatchTransferItemResponse> executeBatch(List<TransferCommand> commands) {
+        List<BatchTransferItemResponse> results =
+                retryingTransactionTemplate.execute("transfer-batch", () -> applyBatch(commands));
+
+        Set<UUID> changed = new HashSet<>();
+        for (BatchTransferItemResponse result : results) {
+            if (result.isSuccess()) {
+                changed.add(result.getTransfer().getFromCardId());
+                changed.add(result.getTransfer().getToCardId());
+            }
+        }
+        cardCache.evictAfterCommit(changed);
+        return results;
+    }
+
+    /**
+     * Applies a batch of transfers inside the current transaction.
+     */
+    private List<BatchTransferItemResponse> applyBatch(List<TransferCommand> commands) {
+        Set<UUID> cardIds = new HashSet<>();
+        for (TransferCommand command : commands) {
+            cardIds.add(command.fromCardId());
+            cardIds.add(command.toCardId());
+        }
+
+        Map<UUID, Card> cards = cardRepo.findAllByIdForUpdate(cardIds).stream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+
+        List<BatchTransferItemResponse> results = new ArrayList<>(commands.size());
+        List<Transfer> transfers = new ArrayList<>();
+
+        for (int i = 0; i < commands.size(); i++) {
+            TransferCommand command = commands.get(i);
+            try {
+                if (command.amount().compareTo(BigDecimal.ZERO) <= 0) {
+                    throw new RuntimeException("Amount must be greater than zero");
+                }
+
+                Card fromCard = cards.get(command.fromCardId());
+                Card toCard = cards.get(command.toCardId());
+                if (fromCard == null || toCard == null) {
+                    throw new RuntimeException("Card not found");
+                }
+
+                cardShardService.ensureBalance(fromCard, command.amount());
+                validateTransfer(fromCard, toCard, command.amount(), command.username());
+
+                fromCard.setBalance(fromCard.getBalance().subtract(command.amount()));
+                toCard.setBalance(toCard.getBalance().add(command.amount()));
+
+                Transfer transfer = Transfer.builder()
+                        .id(command.id() != null ? command.id() : UUID.randomUUID())
+                        .fromCard(fromCard)
+                        .toCard(toCard)
+                        .amount(command.amount())
+                        .build();
+                transfers.add(transfer);
+
+                results.add(BatchTransferItemResponse.succeeded(i, new TransferResponse(
+                        transfer.getId(),
+                        fromCard.getId(),
+                        toCard.getId(),
+                        transfer.getAmount()
+                )));
+            } catch (RuntimeException e) {
+                results.add(BatchTransferItemResponse.failed(i, e.getMessage()));
+            }
+        }
+
+        if (!transfers.isEmpty()) {
+            transferRepo.batchInsert(transfers);
+            ledgerRepo.postTransfers(transfers);
+        }
+
+        return results;
+    }
+
+    /**
+     * Returns one page of a card's transfer history, newest first, using keyset pagination.
+     * Outgoing and incoming transfers are read with two index range scans and merged,
+     * so every page costs the same regardless of how deep it is.
+     *
+     * @param cardId the UUID of the card
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param size the maximum number of transfers on the page
+     * @param username the username of the user asking
+     * @param admin whether the user is an administrator and may see any card
+     * @return a TransferHistoryResponse with the page and the cursor of the next one
+     * @throws RuntimeException if the card does not exist or belongs to another user
+     */
+    @Transactional(readOnly = true)
+    public TransferHistoryResponse getCardHistory(UUID cardId, String cursor, int size, String username, boolean admin) {
+        if (size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
+        }
+        if (admin ? !cardRepo.existsById(cardId) : !cardRepo.existsByIdAndUserUsername(cardId, username)) {
+            throw new RuntimeException("Card not found");
+        }
+
+        TransferCursor position = cursor == null ? TransferCursor.START : TransferCursor.decode(cursor);
+        Pageable limit = PageRequest.ofSize(size + 1);
+
+        List<TransferHistoryItem> merged = new ArrayList<>(2 * size + 2);
+        merged.addAll(transferRepo.findOutgoingBefore(cardId, position.createdAt(), position.id(), limit));
+        merged.addAll(transferRepo.findIncomingBefore(cardId, position.createdAt(), position.id(), limit));
+        merged.sort(TransferCursor.NEWEST_FIRST);
+
+        if (merged.size() <= size) {
+            return new TransferHistoryResponse(merged, null);
+        }
+        List<TransferHistoryItem> page = List.copyOf(merged.subList(0, size));
+        return new TransferHistoryResponse(page, TransferCursor.after(page.get(size - 1)).encode());
+    }
+
+    /**
+     * Checks that a transfer between two loaded cards is allowed.
+     *
+     * @param fromCard the source card
+     * @param toCard the target card
+     * @param amount the transfer amount
+     * @param username the username of the user initiating the transfer
+     * @throws RuntimeException if any validation fails
+     */
+    private void validateTransfer(Card fromCard, Card toCard, BigDecimal amount, String username) {
+        if (!fromCard.getStatus().equals(CardStatus.ACTIVE)
+                || !toCard.getStatus().equals(CardStatus.ACTIVE)) {
+            throw new RuntimeException("Both cards must be active");
+        }
+
+        if (!fromCard.getUser().getUsername().equals(username)) {
+            throw new RuntimeException("You can only transfer from your own card");
+        }
+
+        if (fromCard.getId().equals(toCard.getId())) {
+            throw new RuntimeException("Cannot transfer to the same card");
+        }
+
+        if (fromCard.getBalance().compareTo(amount) < 0) {
+            throw new RuntimeException("Insufficient funds");
+        }
+    }
 }
@@ -0,0 +1,92 @@
+package com.example.bankcards.repository;
+
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers(disabledWithoutDocker = true)
+class LedgerRepoTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static DriverManagerDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static LedgerRepo ledgerRepo;
+
+    @BeforeAll
+    static void migrate() throws Exception {
+        dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.setChangeLog("classpath:db/migration/db.changelog-master.yaml");
+        liquibase.setChangeLogParameters(Map.of("panDigestSecret", "test"));
+        liquibase.afterPropertiesSet();
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        ledgerRepo = new LedgerRepo(jdbcTemplate);
+    }
+
+    @Test
+    void takeSnapshots_lateCommittingPosting_isStillCounted() throws Exception {
+        UUID cardId = createCard();
+        ledgerRepo.postOpening(cardId, new BigDecimal("100.00"));
+        ledgerRepo.takeSnapshots();
+
+        try (Connection late = dataSource.getConnection()) {
+            late.setAutoCommit(false);
+            post(late, cardId, new BigDecimal("10.00"));
+
+            ledgerRepo.postOpening(cardId, new BigDecimal("5.00"));
+            ledgerRepo.takeSnapshots();
+            assertEquals(0, new BigDecimal("105.00").compareTo(ledgerRepo.balance(cardId)));
+
+            late.commit();
+        }
+        assertEquals(0, new BigDecimal("115.00").compareTo(ledgerRepo.balance(cardId)));
+
+        ledgerRepo.takeSnapshots();
+
+        assertEquals(0, new BigDecimal("115.00").compareTo(ledgerRepo.balance(cardId)));
+        assertEquals(0, new BigDecimal("115.00").compareTo(jdbcTemplate.queryForObject(
+                "select balance from card_balance_snapshots where card_id = ?", BigDecimal.class, cardId)));
+    }
+
+    private static UUID createCard() {
+        UUID userId = UUID.randomUUID();
+        UUID cardId = UUID.randomUUID();
+        String number = String.valueOf(System.nanoTime() % 10_000_000_000_000_000L + 1_000_000_000_000_000L);
+        jdbcTemplate.update("insert into users (id, username, password) values (?, ?, ?)",
+                userId, "user-" + userId, "{noop}secret");
+        jdbcTemplate.update("""
+                        insert into cards (id, user_id, number, last4, expiry, status, number_digest)
+                        values (?, ?, ?, ?, current_date + 365, 'ACTIVE', sha256(convert_to(?, 'UTF8')))
+                        """,
+                cardId, userId, number, number.substring(12), number);
+        return cardId;
+    }
+
+    private static void post(Connection connection, UUID cardId, BigDecimal delta) throws Exception {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "insert into ledger_postings (card_id, entry_type, delta) values (?, 'CREDIT', ?)")) {
+            ps.setObject(1, cardId);
+            ps.setBigDecimal(2, delta);
+            ps.executeUpdate();
+        }
+    }
+}
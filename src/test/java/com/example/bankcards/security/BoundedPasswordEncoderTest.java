@@ -0,0 +1,112 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (encoder != null) {
+            encoder.stop();
+        }
+    }
+
+    @Test
+    void encode_storesBcryptWithIdAndMatchesLegacyHashes() {
+        encoder = new BoundedPasswordEncoder(meterRegistry, 4, false, Duration.ofMillis(250), 1, 4, Duration.ofSeconds(5));
+        String legacy = new BCryptPasswordEncoder(4).encode("secret");
+
+        String encoded = encoder.encode("secret");
+
+        assertTrue(encoded.startsWith("{bcrypt}$2a$04$"));
+        assertTrue(encoder.matches("secret", encoded));
+        assertTrue(encoder.matches("secret", legacy));
+        assertFalse(encoder.matches("wrong", legacy));
+    }
+
+    @Test
+    void upgradeEncoding_legacyOrWeakerHash_isUpgraded() {
+        encoder = new BoundedPasswordEncoder(meterRegistry, 5, false, Duration.ofMillis(250), 1, 4, Duration.ofSeconds(5));
+
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(5).encode("secret")));
+        assertTrue(encoder.upgradeEncoding("{bcrypt}" + new BCryptPasswordEncoder(4).encode("secret")));
+        assertFalse(encoder.upgradeEncoding(encoder.encode("secret")));
+        assertFalse(encoder.upgradeEncoding("{bcrypt}" + new BCryptPasswordEncoder(6).encode("secret")));
+    }
+
+    @Test
+    void calibrate_onlyLogs_keepsConfiguredStrength() {
+        encoder = new BoundedPasswordEncoder(meterRegistry, 4, true, Duration.ofSeconds(10), 1, 4, Duration.ofSeconds(5));
+
+        assertTrue(encoder.encode("secret").startsWith("{bcrypt}$2a$04$"));
+    }
+
+    @Test
+    void matches_saturated_failsFast() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        encoder = new BoundedPasswordEncoder(blockingEncoder(started), meterRegistry, 1, 1, Duration.ofSeconds(5));
+        CompletableFuture.runAsync(() -> encoder.matches("a", "a"));
+        started.await();
+        CompletableFuture.runAsync(() -> encoder.matches("b", "b"));
+        while (meterRegistry.get("auth.password.queue.size").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        assertThrows(PasswordHashingBusyException.class, () -> encoder.matches("c", "c"));
+        assertEquals(1, meterRegistry.get("auth.password.rejected").counter().count());
+    }
+
+    @Test
+    void matches_slowerThanTimeout_failsFast() {
+        encoder = new BoundedPasswordEncoder(blockingEncoder(new CountDownLatch(1)), meterRegistry,
+                1, 1, Duration.ofMillis(50));
+
+        assertThrows(PasswordHashingBusyException.class, () -> encoder.matches("a", "a"));
+    }
+
+    @Test
+    void calibration_scalesProbeTimeToTarget() {
+        assertEquals(12, BCryptCalibration.strengthFor(Duration.ofMillis(250), Duration.ofMillis(15)));
+        assertEquals(BCryptCalibration.MIN_STRENGTH,
+                BCryptCalibration.strengthFor(Duration.ofMillis(250), Duration.ofMillis(200)));
+        assertEquals(BCryptCalibration.MAX_STRENGTH,
+                BCryptCalibration.strengthFor(Duration.ofSeconds(10), Duration.ofNanos(1)));
+    }
+
+    private PasswordEncoder blockingEncoder(CountDownLatch started) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.bankcards.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtProviderTest {
+
+    private static final String SECRET = "ff1d94bb2f2ccda614c28ec6a777fdae545e9cf52027fda710381ee5791658f0";
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private JwtProvider jwtProvider;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtProvider = new JwtProvider(meterRegistry, SECRET, 3600, "bank-rest", 100);
+    }
+
+    @Test
+    void verify_generatedToken_returnsSubject() {
+        JwtProvider.IssuedToken issued = jwtProvider.generateToken("alice", List.of("USER"), 3);
+
+        JwtProvider.VerifiedToken verified = jwtProvider.verify(issued.value()).orElseThrow();
+
+        assertEquals(issued.tokenId(), verified.tokenId());
+        assertEquals(issued.expiresAt().getEpochSecond(), verified.expiresAt().getEpochSecond());
+        assertEquals("alice", verified.username());
+        assertEquals(List.of("USER"), verified.authorities().stream().map(GrantedAuthority::getAuthority).toList());
+        assertEquals(3, verified.securityVersion());
+        assertTrue(verified.expiresAt().isAfter(new Date().toInstant()));
+    }
+
+    @Test
+    void verify_sameTokenTwice_parsesOnce() {
+        String token = jwtProvider.generateToken("alice", List.of("USER"), 3).value();
+
+        jwtProvider.verify(token);
+        jwtProvider.verify(token);
+
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "jwt-verified").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void verify_tamperedToken_isRejected() {
+        String token = jwtProvider.generateToken("alice", List.of("USER"), 3).value();
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertTrue(jwtProvider.verify(tampered).isEmpty());
+        assertTrue(jwtProvider.verify("not-a-token").isEmpty());
+    }
+
+    @Test
+    void verify_tokenWithoutRoles_isRejected() {
+        String legacy = Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setSubject("alice")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertTrue(jwtProvider.verify(legacy).isEmpty());
+    }
+
+    @Test
+    void verify_tokenWithoutId_isRejected() {
+        String legacy = Jwts.builder()
+                .setSubject("alice")
+                .claim(JwtProvider.ROLES_CLAIM, List.of("USER"))
+                .claim(JwtProvider.VERSION_CLAIM, 3)
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertTrue(jwtProvider.verify(legacy).isEmpty());
+    }
+
+    @Test
+    void verify_expiredToken_isRejected() {
+        String expired = Jwts.builder()
+                .setSubject("alice")
+                .setExpiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertTrue(jwtProvider.verify(expired).isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.bankcards.security;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.Key;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of authenticating a bearer token.
+ * {@code validateThenParse} repeats what the filter used to do: decode the key and build a parser,
+ * verify the token, then do all of it again to read the subject. {@code parseOnce} is a single parse
+ * with the key and parser built once, as on the first request with a token; {@code verifyCached} is every
+ * request after that.
+ * <p>
+ * Run with {@code mvn -P benchmark test-compile exec:exec -Dbenchmark=JwtVerification}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtVerificationBenchmark {
+
+    private static final String SECRET = "ff1d94bb2f2ccda614c28ec6a777fdae545e9cf52027fda710381ee5791658f0";
+
+    private JwtProvider jwtProvider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtProvider = new JwtProvider(new SimpleMeterRegistry(), SECRET, 3600, "bank-rest", 10_000);
+        token = jwtProvider.generateToken("admin", List.of("ADMIN", "USER"), 0).value();
+        jwtProvider.verify(token);
+    }
+
+    @Benchmark
+    public String validateThenParse() {
+        try {
+            Jwts.parserBuilder().setSigningKey(legacySigningKey()).build().parseClaimsJws(token);
+        } catch (JwtException | IllegalArgumentException ex) {
+            return null;
+        }
+        return Jwts.parserBuilder().setSigningKey(legacySigningKey()).build()
+                .parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public String parseOnce() {
+        return jwtProvider.parse(token).map(JwtProvider.VerifiedToken::username).orElse(null);
+    }
+
+    @Benchmark
+    public String verifyCached() {
+        return jwtProvider.verify(token).map(JwtProvider.VerifiedToken::username).orElse(null);
+    }
+
+    private static Key legacySigningKey() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+    }
+}
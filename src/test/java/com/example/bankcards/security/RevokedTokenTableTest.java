@@ -0,0 +1,107 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.RevokedToken;
+import com.example.bankcards.repository.RevokedTokenRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RevokedTokenTableTest {
+
+    private static final Instant NOW = Instant.parse("2025-03-10T12:00:00Z");
+
+    @Mock
+    private RevokedTokenRepo revokedTokenRepo;
+
+    private RevokedTokenTable table;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        table = new RevokedTokenTable(revokedTokenRepo, new SimpleMeterRegistry(), 16,
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void isRevoked_tokenFromTable_isRejected() {
+        UUID revoked = UUID.randomUUID();
+        when(revokedTokenRepo.findRevokedSince(anyLong(), any()))
+                .thenReturn(List.of(new RevokedToken(revoked, NOW.plusSeconds(60), NOW)));
+        table.load();
+
+        assertTrue(table.isRevoked(token(revoked)));
+        assertFalse(table.isRevoked(token(UUID.randomUUID())));
+    }
+
+    @Test
+    void revoke_isVisibleBeforeRefresh() {
+        UUID revoked = UUID.randomUUID();
+
+        table.revoke(revoked, NOW.plusSeconds(60));
+
+        assertTrue(table.isRevoked(token(revoked)));
+    }
+
+    @Test
+    void refresh_readsAgainFromCommitHorizonOfLastRefresh() {
+        when(revokedTokenRepo.findCommitHorizon()).thenReturn(700L, 750L);
+        when(revokedTokenRepo.findRevokedSince(anyLong(), any())).thenReturn(List.of());
+        table.load();
+
+        table.refresh();
+
+        verify(revokedTokenRepo).findRevokedSince(0L, NOW);
+        verify(revokedTokenRepo).findRevokedSince(700L, NOW);
+    }
+
+    @Test
+    void refresh_prunesExpiredTokens() {
+        UUID expired = UUID.randomUUID();
+        table.revoke(expired, NOW.minusSeconds(1));
+        when(revokedTokenRepo.findRevokedSince(anyLong(), any())).thenReturn(List.of());
+
+        table.load();
+
+        assertFalse(table.isRevoked(token(expired)));
+    }
+
+    @Test
+    void revoke_beyondCapacity_keepsEveryToken() {
+        List<UUID> revoked = new ArrayList<>();
+        IntStream.range(0, 100).forEach(i -> {
+            UUID id = UUID.randomUUID();
+            revoked.add(id);
+            table.revoke(id, NOW.plusSeconds(60));
+        });
+
+        revoked.forEach(id -> assertTrue(table.isRevoked(token(id))));
+    }
+
+    @Test
+    void bloomFilter_hasNoFalseNegativesAndFewFalsePositives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        List<UUID> added = IntStream.range(0, 10_000).mapToObj(i -> UUID.randomUUID()).toList();
+        added.forEach(filter::put);
+
+        added.forEach(id -> assertTrue(filter.mightContain(id)));
+        long falsePositives = IntStream.range(0, 10_000).filter(i -> filter.mightContain(UUID.randomUUID())).count();
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+
+    private static JwtProvider.VerifiedToken token(UUID tokenId) {
+        return new JwtProvider.VerifiedToken(tokenId, "alice", List.of(), 0, NOW.plusSeconds(600));
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.UserRepo;
+import com.example.bankcards.repository.UserSecurityState;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SecurityVersionTableTest {
+
+    private static final Instant NOW = Instant.parse("2025-03-10T12:00:00Z");
+
+    @Mock
+    private UserRepo userRepo;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private SecurityVersionTable table;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        table = new SecurityVersionTable(userRepo, eventPublisher, new SimpleMeterRegistry(), Duration.ofHours(1),
+                Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void isRevoked_unchangedUser_acceptsToken() {
+        when(userRepo.findSecurityStatesChangedSince(any(Instant.class))).thenReturn(List.of());
+        table.load();
+
+        assertFalse(table.isRevoked(token("alice", 0)));
+    }
+
+    @Test
+    void isRevoked_rolesChangedAfterIssue_rejectsOlderTokens() {
+        when(userRepo.findSecurityStatesChangedSince(any(Instant.class)))
+                .thenReturn(List.of(new UserSecurityState("alice", 4, true, NOW.minusSeconds(60))));
+        table.load();
+
+        assertTrue(table.isRevoked(token("alice", 3)));
+        assertFalse(table.isRevoked(token("alice", 4)));
+    }
+
+    @Test
+    void isRevoked_disabledUser_rejectsEveryToken() {
+        when(userRepo.findSecurityStatesChangedSince(any(Instant.class)))
+                .thenReturn(List.of(new UserSecurityState("alice", 4, false, NOW.minusSeconds(60))));
+        table.load();
+
+        assertTrue(table.isRevoked(token("alice", 4)));
+    }
+
+    @Test
+    void load_readsOneTokenLifetimeBack() {
+        table.load();
+
+        verify(userRepo).findSecurityStatesChangedSince(NOW.minus(Duration.ofHours(1)));
+    }
+
+    @Test
+    void refresh_readsAgainFromCommitHorizonOfLastRead() {
+        when(userRepo.findCommitHorizon()).thenReturn(700L, 750L);
+        when(userRepo.findSecurityStatesChangedSince(any(Instant.class))).thenReturn(List.of());
+        when(userRepo.findSecurityStatesChangedSince(anyLong())).thenReturn(List.of());
+        table.load();
+
+        table.refresh();
+        table.refresh();
+
+        verify(userRepo).findSecurityStatesChangedSince(700L);
+        verify(userRepo).findSecurityStatesChangedSince(750L);
+    }
+
+    @Test
+    void refresh_failure_keepsPreviousTable() {
+        when(userRepo.findSecurityStatesChangedSince(any(Instant.class)))
+                .thenReturn(List.of(new UserSecurityState("alice", 4, true, NOW.minusSeconds(60))));
+        when(userRepo.findSecurityStatesChangedSince(anyLong())).thenThrow(new RuntimeException("connection refused"));
+        table.load();
+
+        table.refresh();
+
+        assertTrue(table.isRevoked(token("alice", 3)));
+    }
+
+    @Test
+    void refresh_publishesChangeOnlyForNewVersions() {
+        UserSecurityState changed = new UserSecurityState("alice", 4, true, NOW.minusSeconds(5));
+        when(userRepo.findSecurityStatesChangedSince(any(Instant.class))).thenReturn(List.of(changed));
+        when(userRepo.findSecurityStatesChangedSince(anyLong())).thenReturn(List.of(changed));
+        table.load();
+
+        table.refresh();
+
+        verify(eventPublisher, times(1)).publishEvent(new UserSecurityChangedEvent("alice"));
+    }
+
+    private static JwtProvider.VerifiedToken token(String username, long securityVersion) {
+        return new JwtProvider.VerifiedToken(UUID.randomUUID(), username, List.of(), securityVersion,
+                NOW.plusSeconds(600));
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.RevokedTokenRepo;
+import com.example.bankcards.repository.UserRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the in-memory revocation tables pick up changes whose transactions commit
+ * after a refresh has already run past them.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class TokenRevocationRefreshTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private RevokedTokenRepo revokedTokenRepo;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void revokedTokenTable_revocationCommittedAfterRefresh_isLoaded() throws Exception {
+        RevokedTokenTable table = new RevokedTokenTable(revokedTokenRepo, new SimpleMeterRegistry(), 16);
+        table.load();
+        UUID tokenId = UUID.randomUUID();
+
+        try (Connection late = dataSource.getConnection()) {
+            late.setAutoCommit(false);
+            try (PreparedStatement ps = late.prepareStatement(
+                    "insert into revoked_tokens (id, expires_at) values (?, now() + interval '1 hour')")) {
+                ps.setObject(1, tokenId);
+                ps.executeUpdate();
+            }
+
+            table.refresh();
+            assertFalse(table.isRevoked(token(tokenId, "alice", 0)));
+
+            late.commit();
+        }
+        table.refresh();
+
+        assertTrue(table.isRevoked(token(tokenId, "alice", 0)));
+    }
+
+    @Test
+    void securityVersionTable_userDisabledAfterRefresh_isLoaded() throws Exception {
+        String username = "user-" + UUID.randomUUID();
+        jdbcTemplate.update("insert into users (id, username, password) values (?, ?, ?)",
+                UUID.randomUUID(), username, "{noop}secret");
+        SecurityVersionTable table = new SecurityVersionTable(userRepo, event -> { }, new SimpleMeterRegistry(), 3600);
+        table.load();
+
+        try (Connection late = dataSource.getConnection()) {
+            late.setAutoCommit(false);
+            try (PreparedStatement ps = late.prepareStatement("update users set enabled = false where username = ?")) {
+                ps.setString(1, username);
+                ps.executeUpdate();
+            }
+
+            table.refresh();
+            assertFalse(table.isRevoked(token(UUID.randomUUID(), username, 0)));
+
+            late.commit();
+        }
+        table.refresh();
+
+        assertTrue(table.isRevoked(token(UUID.randomUUID(), username, 0)));
+    }
+
+    private static JwtProvider.VerifiedToken token(UUID tokenId, String username, long securityVersion) {
+        return new JwtProvider.VerifiedToken(tokenId, username, List.of(), securityVersion,
+                Instant.now().plusSeconds(600));
+    }
+}
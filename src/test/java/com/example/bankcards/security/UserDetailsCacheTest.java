@@ -0,0 +1,58 @@
+package com.example.bankcards.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserDetailsCacheTest {
+
+    private UserDetailsCache cache;
+    private AtomicInteger loads;
+    private Function<String, SecurityUser> loader;
+
+    @BeforeEach
+    void setUp() {
+        cache = new UserDetailsCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+        loads = new AtomicInteger();
+        loader = username -> {
+            loads.incrementAndGet();
+            return new SecurityUser(username, "{bcrypt}hash", true, List.of(new SimpleGrantedAuthority("USER")), 2);
+        };
+    }
+
+    @Test
+    void get_cachedUser_isNotLoadedAgain() {
+        SecurityUser first = cache.get("alice", loader);
+        SecurityUser second = cache.get("alice", loader);
+
+        assertEquals(1, loads.get());
+        assertNotSame(first, second);
+        assertEquals("{bcrypt}hash", second.getPassword());
+        assertEquals(2, second.getSecurityVersion());
+    }
+
+    @Test
+    void get_erasedCredentials_doNotLeakIntoCache() {
+        cache.get("alice", loader).eraseCredentials();
+
+        assertEquals("{bcrypt}hash", cache.get("alice", loader).getPassword());
+    }
+
+    @Test
+    void onUserSecurityChanged_evictsUser() {
+        cache.get("alice", loader);
+
+        cache.onUserSecurityChanged(new UserSecurityChangedEvent("alice"));
+        cache.get("alice", loader);
+
+        assertEquals(2, loads.get());
+    }
+}
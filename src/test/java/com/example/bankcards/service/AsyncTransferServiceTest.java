@@ -0,0 +1,100 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.BatchTransferItemResponse;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.dto.TransferStatusResponse;
+import com.example.bankcards.exception.TransferQueueFullException;
+import com.example.bankcards.repository.TransferRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AsyncTransferServiceTest {
+
+    @Mock
+    private TransferService transferService;
+
+    @Mock
+    private TransferRepo transferRepo;
+
+    private AsyncTransferService asyncTransferService;
+
+    private final UUID fromCardId = UUID.randomUUID();
+    private final UUID toCardId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        asyncTransferService = new AsyncTransferService(transferService, transferRepo, new SimpleMeterRegistry(),
+                2, 1, 10, Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(asyncTransferService, "accepting", true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(asyncTransferService, "accepting", false);
+    }
+
+    @Test
+    void submit_returnsPendingStatus() {
+        TransferStatusResponse status = asyncTransferService.submit(fromCardId, toCardId, BigDecimal.TEN, "testuser");
+
+        assertNotNull(status.getId());
+        assertEquals(TransferStatusResponse.Status.PENDING, status.getStatus());
+        assertEquals(TransferStatusResponse.Status.PENDING,
+                asyncTransferService.getStatus(status.getId(), "testuser").getStatus());
+    }
+
+    @Test
+    void submit_queueFull_throws() {
+        asyncTransferService.submit(fromCardId, toCardId, BigDecimal.TEN, "testuser");
+        asyncTransferService.submit(fromCardId, toCardId, BigDecimal.TEN, "testuser");
+
+        assertThrows(TransferQueueFullException.class, () ->
+                asyncTransferService.submit(fromCardId, toCardId, BigDecimal.TEN, "testuser"));
+    }
+
+    @Test
+    void process_recordsOutcomeOfEveryTransferInOneBatch() throws InterruptedException {
+        TransferStatusResponse ok = asyncTransferService.submit(fromCardId, toCardId, BigDecimal.TEN, "testuser");
+        TransferStatusResponse rejected = asyncTransferService.submit(fromCardId, toCardId, BigDecimal.TEN, "testuser");
+        when(transferService.executeBatch(anyList())).thenReturn(List.of(
+                BatchTransferItemResponse.succeeded(0, new TransferResponse(ok.getId(), fromCardId, toCardId, BigDecimal.TEN)),
+                BatchTransferItemResponse.failed(1, "Insufficient funds")
+        ));
+
+        List<TransferCommand> batch = asyncTransferService.nextBatch();
+        asyncTransferService.process(batch);
+
+        assertEquals(2, batch.size());
+        verify(transferService, times(1)).executeBatch(anyList());
+        assertEquals(TransferStatusResponse.Status.COMPLETED,
+                asyncTransferService.getStatus(ok.getId(), "testuser").getStatus());
+        TransferStatusResponse failed = asyncTransferService.getStatus(rejected.getId(), "testuser");
+        assertEquals(TransferStatusResponse.Status.FAILED, failed.getStatus());
+        assertEquals("Insufficient funds", failed.getError());
+    }
+
+    @Test
+    void getStatus_otherUser_notFound() {
+        TransferStatusResponse status = asyncTransferService.submit(fromCardId, toCardId, BigDecimal.TEN, "testuser");
+        when(transferRepo.findById(status.getId())).thenReturn(Optional.empty());
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () ->
+                asyncTransferService.getStatus(status.getId(), "hacker"));
+        assertEquals("Transfer not found", ex.getMessage());
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardBulkStatusRequest;
+import com.example.bankcards.dto.CardBulkStatusResponse;
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardRepo;
+import com.example.bankcards.repository.CardSearchFilter;
+import com.example.bankcards.repository.ChangedCard;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CardBulkServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 3, 10);
+
+    @Mock
+    private CardRepo cardRepo;
+
+    @Mock
+    private RetryingTransactionTemplate retryingTransactionTemplate;
+
+    @Mock
+    private CardCache cardCache;
+
+    @Mock
+    private CardStatsService cardStatsService;
+
+    private CardBulkService cardBulkService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(retryingTransactionTemplate.execute(anyString(), any()))
+                .thenAnswer(i -> i.<Supplier<?>>getArgument(1).get());
+        Clock clock = Clock.fixed(Instant.parse("2025-03-10T12:00:00Z"), ZoneOffset.UTC);
+        cardBulkService = new CardBulkService(cardRepo, retryingTransactionTemplate, cardCache, cardStatsService,
+                new SimpleMeterRegistry(), 2, clock);
+    }
+
+    @Test
+    void changeStatus_byId_updatesInChunks() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        CardBulkStatusRequest request = new CardBulkStatusRequest();
+        request.setIds(List.of(first, second, third));
+        List<ChangedCard> firstChunk = List.of(changedCard(first), changedCard(second));
+        when(cardRepo.changeStatus(new UUID[]{first, second}, "BLOCKED", TODAY)).thenReturn(firstChunk);
+        when(cardRepo.changeStatus(new UUID[]{third}, "BLOCKED", TODAY)).thenReturn(List.of());
+
+        CardBulkStatusResponse response = cardBulkService.changeStatus(request, CardStatus.BLOCKED);
+
+        assertEquals(2, response.getUpdated());
+        assertEquals(List.of(first, second), response.getIds());
+        verify(cardStatsService).recordStatusChanges(firstChunk);
+        verify(cardCache).evictAfterCommit(List.of(first, second));
+        verify(cardCache).evictAfterCommit(List.of());
+    }
+
+    @Test
+    void changeStatus_byFilter_walksSearchKeyset() {
+        CardResponse first = cardResponse(LocalDate.of(2026, 1, 1));
+        CardResponse second = cardResponse(LocalDate.of(2026, 2, 1));
+        CardResponse third = cardResponse(LocalDate.of(2026, 3, 1));
+        CardBulkStatusRequest request = new CardBulkStatusRequest();
+        request.setOwner("alice");
+        CardSearchFilter filter = new CardSearchFilter(null, null, "alice", null, null);
+        when(cardRepo.search(filter, null, null, 2))
+                .thenReturn(new SliceImpl<>(List.of(first, second), PageRequest.ofSize(2), true));
+        when(cardRepo.search(filter, second.getExpiry(), second.getId(), 2))
+                .thenReturn(new SliceImpl<>(List.of(third), PageRequest.ofSize(2), false));
+        when(cardRepo.changeStatus(any(), eq("DELETED"), eq(TODAY)))
+                .thenAnswer(i -> Arrays.stream(i.<UUID[]>getArgument(0)).map(this::changedCard).toList());
+
+        CardBulkStatusResponse response = cardBulkService.changeStatus(request, CardStatus.DELETED);
+
+        assertEquals(List.of(first.getId(), second.getId(), third.getId()), response.getIds());
+        verify(cardRepo, times(2)).changeStatus(any(), eq("DELETED"), eq(TODAY));
+    }
+
+    @Test
+    void changeStatus_idsAndFilter_throws() {
+        CardBulkStatusRequest request = new CardBulkStatusRequest();
+        request.setIds(List.of(UUID.randomUUID()));
+        request.setOwner("alice");
+
+        assertThrows(IllegalArgumentException.class, () -> cardBulkService.changeStatus(request, CardStatus.BLOCKED));
+        verifyNoInteractions(cardRepo);
+    }
+
+    @Test
+    void changeStatus_noCardsGiven_throws() {
+        assertThrows(IllegalArgumentException.class, () ->
+                cardBulkService.changeStatus(new CardBulkStatusRequest(), CardStatus.BLOCKED));
+        verifyNoInteractions(cardRepo);
+    }
+
+    private ChangedCard changedCard(UUID id) {
+        ChangedCard card = mock(ChangedCard.class);
+        when(card.getId()).thenReturn(id);
+        return card;
+    }
+
+    private static CardResponse cardResponse(LocalDate expiry) {
+        return new CardResponse(UUID.randomUUID(), "**** **** **** 1234", "alice", expiry, CardStatus.ACTIVE,
+                BigDecimal.TEN);
+    }
+}
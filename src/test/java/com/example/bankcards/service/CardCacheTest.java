@@ -0,0 +1,136 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepo;
+import com.example.bankcards.repository.LedgerRepo;
+import com.example.bankcards.repository.UserRepo;
+import com.example.bankcards.security.PanDigester;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CardCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CardCache cardCache;
+
+    private UUID cardId;
+    private AtomicInteger loads;
+    private Function<UUID, CardSnapshot> loader;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cardCache = new CardCache(meterRegistry, 100, Duration.ofMinutes(5));
+        cardId = UUID.randomUUID();
+        loads = new AtomicInteger();
+        loader = id -> {
+            loads.incrementAndGet();
+            return snapshot(id, LocalDate.now().plusYears(1));
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static CardSnapshot snapshot(UUID id, LocalDate expiry) {
+        return new CardSnapshot(id, "**** **** **** 1234", "testuser", expiry, CardStatus.ACTIVE, BigDecimal.TEN,
+                "\"1\"");
+    }
+
+    @Test
+    void get_secondRead_isServedFromCache() {
+        cardCache.get(cardId, loader);
+        cardCache.get(cardId, loader);
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "cards").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "cards").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void evictAfterCommit_withoutTransaction_evictsImmediately() {
+        cardCache.get(cardId, loader);
+
+        cardCache.evictAfterCommit(cardId);
+        cardCache.get(cardId, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void evictAfterCommit_inTransaction_waitsForCommit() {
+        cardCache.get(cardId, loader);
+        TransactionSynchronizationManager.initSynchronization();
+
+        cardCache.evictAfterCommit(cardId);
+        cardCache.get(cardId, loader);
+        assertEquals(1, loads.get());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        cardCache.get(cardId, loader);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_loaderEvictingItsOwnCard_evictsOnceLoaded() {
+        CardSnapshot loaded = cardCache.get(cardId, id -> {
+            loads.incrementAndGet();
+            cardCache.evictAfterCommit(id);
+            return snapshot(id, LocalDate.now().plusYears(1));
+        });
+        assertEquals(cardId, loaded.id());
+
+        cardCache.get(cardId, loader);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getCardSnapshot_expiredCard_isLoadedWithoutWritingAndReloadedOnceExpired() {
+        CardRepo cardRepo = mock(CardRepo.class);
+        CardService cardService = new CardService(cardRepo, mock(UserRepo.class), mock(LedgerRepo.class),
+                cardCache, mock(CardStatsService.class), mock(PanDigester.class));
+        User user = new User();
+        user.setUsername("testuser");
+        Card card = Card.builder()
+                .id(cardId)
+                .number("1234567812345678")
+                .user(user)
+                .expiry(LocalDate.now().minusDays(1))
+                .status(CardStatus.ACTIVE)
+                .balance(BigDecimal.TEN)
+                .version(0L)
+                .build();
+        when(cardRepo.findWithUserById(cardId)).thenReturn(Optional.of(card));
+
+        assertEquals(CardStatus.ACTIVE, cardService.getCardSnapshot(cardId).status());
+        verify(cardRepo, never()).save(any());
+
+        card.setStatus(CardStatus.EXPIRED);
+        cardCache.evictAfterCommit(List.of(cardId));
+
+        assertEquals(CardStatus.EXPIRED, cardService.getCardSnapshot(cardId).status());
+        verify(cardRepo, times(2)).findWithUserById(cardId);
+    }
+}
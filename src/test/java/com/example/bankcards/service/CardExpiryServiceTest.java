@@ -0,0 +1,106 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.JobWatermark;
+import com.example.bankcards.repository.CardRepo;
+import com.example.bankcards.repository.ChangedCard;
+import com.example.bankcards.repository.JobWatermarkRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CardExpiryServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 3, 10);
+
+    @Mock
+    private CardRepo cardRepo;
+
+    @Mock
+    private JobWatermarkRepo jobWatermarkRepo;
+
+    @Mock
+    private RetryingTransactionTemplate retryingTransactionTemplate;
+
+    @Mock
+    private CardCache cardCache;
+
+    @Mock
+    private CardStatsService cardStatsService;
+
+    private CardExpiryService cardExpiryService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(retryingTransactionTemplate.execute(anyString(), any()))
+                .thenAnswer(i -> i.<Supplier<?>>getArgument(1).get());
+        Clock clock = Clock.fixed(Instant.parse("2025-03-10T12:00:00Z"), ZoneOffset.UTC);
+        cardExpiryService = new CardExpiryService(cardRepo, jobWatermarkRepo, retryingTransactionTemplate,
+                cardCache, cardStatsService, new SimpleMeterRegistry(), 2, clock);
+    }
+
+    @Test
+    void expireCards_fullChunks_loopsUntilShortChunk() {
+        LocalDate watermark = TODAY.minusDays(3);
+        when(jobWatermarkRepo.findById(CardExpiryService.JOB_NAME))
+                .thenReturn(Optional.of(new JobWatermark(CardExpiryService.JOB_NAME, watermark, Instant.EPOCH)));
+        List<ChangedCard> first = List.of(expiredCard(), expiredCard());
+        List<ChangedCard> second = List.of(expiredCard());
+        when(cardRepo.expireBefore(watermark, TODAY, 2)).thenReturn(first, second);
+
+        assertEquals(3, cardExpiryService.expireCards());
+
+        verify(cardRepo, times(2)).expireBefore(watermark, TODAY, 2);
+        verify(cardStatsService).recordStatusChanges(first);
+        verify(cardStatsService).recordStatusChanges(second);
+        verify(cardCache).evictAfterCommit(List.of(first.get(0).getId(), first.get(1).getId()));
+        verify(cardCache).evictAfterCommit(List.of(second.get(0).getId()));
+        ArgumentCaptor<JobWatermark> saved = ArgumentCaptor.forClass(JobWatermark.class);
+        verify(jobWatermarkRepo).save(saved.capture());
+        assertEquals(TODAY, saved.getValue().getWatermark());
+    }
+
+    @Test
+    void expireCards_noWatermark_scansFromEpoch() {
+        when(jobWatermarkRepo.findById(CardExpiryService.JOB_NAME)).thenReturn(Optional.empty());
+        when(cardRepo.expireBefore(any(), any(), anyInt())).thenReturn(List.of());
+
+        assertEquals(0, cardExpiryService.expireCards());
+
+        verify(cardRepo).expireBefore(LocalDate.EPOCH, TODAY, 2);
+        verify(jobWatermarkRepo).save(any());
+    }
+
+    @Test
+    void expireCards_alreadyRunToday_doesNothing() {
+        when(jobWatermarkRepo.findById(CardExpiryService.JOB_NAME))
+                .thenReturn(Optional.of(new JobWatermark(CardExpiryService.JOB_NAME, TODAY, Instant.EPOCH)));
+
+        assertEquals(0, cardExpiryService.expireCards());
+
+        verify(cardRepo, never()).expireBefore(any(), any(), anyInt());
+        verify(jobWatermarkRepo, never()).save(any());
+    }
+
+    private static ChangedCard expiredCard() {
+        ChangedCard card = mock(ChangedCard.class);
+        UUID id = UUID.randomUUID();
+        when(card.getId()).thenReturn(id);
+        return card;
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardImportResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.CardRepo;
+import com.example.bankcards.repository.LedgerRepo;
+import com.example.bankcards.repository.UserRepo;
+import com.example.bankcards.security.PanDigester;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CardImportServiceTest {
+
+    private static final String EXPIRY = LocalDate.now().plusYears(2).toString();
+
+    @Mock
+    private CardRepo cardRepo;
+
+    @Mock
+    private UserRepo userRepo;
+
+    @Mock
+    private LedgerRepo ledgerRepo;
+
+    @Mock
+    private RetryingTransactionTemplate retryingTransactionTemplate;
+
+    @Mock
+    private CardStatsService cardStatsService;
+
+    private final PanDigester panDigester = new PanDigester("test-secret");
+
+    private CardImportService cardImportService;
+
+    private User alice;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(retryingTransactionTemplate.execute(anyString(), any()))
+                .thenAnswer(i -> i.<Supplier<?>>getArgument(1).get());
+        cardImportService = new CardImportService(cardRepo, userRepo, ledgerRepo, retryingTransactionTemplate, cardStatsService,
+                panDigester,
+                new ObjectMapper().findAndRegisterModules(),
+                Validation.buildDefaultValidatorFactory().getValidator(), 2, 10);
+
+        alice = new User();
+        alice.setId(UUID.randomUUID());
+        alice.setUsername("alice");
+        when(userRepo.findAllByUsernameIn(any())).thenReturn(List.of(alice));
+        when(userRepo.findAllById(any())).thenReturn(List.of(alice));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importCards_csv_insertsCardsInChunks() throws Exception {
+        String csv = "user,number,expiry,balance\n"
+                + "alice,1111222233334444," + EXPIRY + ",10.00\n"
+                + alice.getId() + ",1111222233335555," + EXPIRY + ",0\n"
+                + "alice,1111222233336666," + EXPIRY + ",5\n";
+
+        CardImportResponse response = cardImportService.importCards(stream(csv), StatementFormat.CSV);
+
+        assertEquals(3, response.getImported());
+        assertEquals(0, response.getFailed());
+        ArgumentCaptor<List<Card>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(cardRepo, times(2)).batchInsert(inserted.capture());
+        assertEquals(2, inserted.getAllValues().get(0).size());
+        assertEquals(alice, inserted.getAllValues().get(0).get(1).getUser());
+        verify(ledgerRepo, times(2)).postOpenings(any());
+        verify(cardStatsService, times(2)).recordCreated(any());
+        verify(userRepo, times(2)).findAllByUsernameIn(any());
+    }
+
+    @Test
+    void importCards_invalidRows_areReportedWithLineNumbers() throws Exception {
+        String csv = "alice,1234," + EXPIRY + ",10\n"
+                + "alice,1111222233334444,2020-01-01,10\n"
+                + "alice,1111222233334444,not-a-date,10\n"
+                + ",1111222233334444," + EXPIRY + ",10\n"
+                + "bob,1111222233334444," + EXPIRY + ",10\n";
+        when(userRepo.findAllByUsernameIn(any())).thenReturn(List.of());
+
+        CardImportResponse response = cardImportService.importCards(stream(csv), StatementFormat.CSV);
+
+        assertEquals(0, response.getImported());
+        assertEquals(5, response.getFailed());
+        assertEquals("Card number must be 16 digits", response.getErrors().get(0).getError());
+        assertEquals(2, response.getErrors().get(1).getLine());
+        assertEquals("Expiry date must be in the future", response.getErrors().get(1).getError());
+        assertEquals("Malformed row", response.getErrors().get(2).getError());
+        assertEquals("User ID or username is required", response.getErrors().get(3).getError());
+        assertEquals(5, response.getErrors().get(4).getLine());
+        assertEquals("User not found", response.getErrors().get(4).getError());
+        verify(cardRepo, never()).batchInsert(any());
+    }
+
+    @Test
+    void importCards_ndjson_parsesObjects() throws Exception {
+        String ndjson = "{\"username\":\"alice\",\"number\":\"1111222233334444\",\"expiry\":\"" + EXPIRY
+                + "\",\"balance\":12.50}\n";
+
+        CardImportResponse response = cardImportService.importCards(stream(ndjson), StatementFormat.NDJSON);
+
+        assertEquals(1, response.getImported());
+        verify(ledgerRepo).postOpenings(argThat(cards -> cards.get(0).getBalance().equals(new BigDecimal("12.50"))));
+    }
+
+    @Test
+    void importCards_takenOrRepeatedNumber_isRejected() throws Exception {
+        String csv = "alice,1111222233335555," + EXPIRY + ",1\n"
+                + "alice,1111222233335555," + EXPIRY + ",1\n"
+                + "alice,1111222233334444," + EXPIRY + ",1\n";
+        when(cardRepo.findExistingNumberDigests(any()))
+                .thenReturn(List.of(), List.of(panDigester.digest("1111222233334444")));
+
+        CardImportResponse response = cardImportService.importCards(stream(csv), StatementFormat.CSV);
+
+        assertEquals(1, response.getImported());
+        assertEquals(2, response.getFailed());
+        assertEquals(2, response.getErrors().get(0).getLine());
+        assertEquals("Card number already exists", response.getErrors().get(0).getError());
+        assertEquals(3, response.getErrors().get(1).getLine());
+        verify(cardRepo).batchInsert(argThat(cards -> cards.size() == 1
+                && Arrays.equals(cards.get(0).getNumberDigest(), panDigester.digest("1111222233335555"))));
+    }
+
+    @Test
+    void importCards_failedChunk_rejectsItsRowsAndContinues() throws Exception {
+        String csv = "alice,1111222233334444," + EXPIRY + ",1\n"
+                + "alice,1111222233335555," + EXPIRY + ",1\n"
+                + "alice,1111222233336666," + EXPIRY + ",1\n";
+        doThrow(new DataIntegrityViolationException("boom")).doNothing().when(cardRepo).batchInsert(any());
+
+        CardImportResponse response = cardImportService.importCards(stream(csv), StatementFormat.CSV);
+
+        assertEquals(1, response.getImported());
+        assertEquals(2, response.getFailed());
+        assertEquals("Import failed", response.getErrors().get(0).getError());
+    }
+
+    @Test
+    void importCards_numberTakenBetweenLookupAndInsert_rejectsOnlyThatRow() throws Exception {
+        String csv = "alice,1111222233334444," + EXPIRY + ",1\n"
+                + "alice,1111222233335555," + EXPIRY + ",1\n";
+        when(cardRepo.findExistingNumberDigests(any()))
+                .thenReturn(List.of(), List.of(panDigester.digest("1111222233335555")));
+        doThrow(new DuplicateKeyException("batch failed", new BatchUpdateException("Batch entry 1 was aborted", "23505",
+                new int[0], new SQLException("duplicate key value violates unique constraint \"uq_cards_number_digest\"", "23505"))))
+                .doNothing().when(cardRepo).batchInsert(any());
+
+        CardImportResponse response = cardImportService.importCards(stream(csv), StatementFormat.CSV);
+
+        assertEquals(1, response.getImported());
+        assertEquals(1, response.getFailed());
+        assertEquals(2, response.getErrors().get(0).getLine());
+        assertEquals("Card number already exists", response.getErrors().get(0).getError());
+        verify(cardRepo, times(2)).batchInsert(any());
+        verify(ledgerRepo).postOpenings(argThat(cards -> cards.size() == 1));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,21 +1,38 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CardBatchGetResponse;
 import com.example.bankcards.dto.CardRequest;
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.CardSearchResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.CardRepo;
+import com.example.bankcards.repository.CardSearchFilter;
+import com.example.bankcards.repository.CardVersion;
+import com.example.bankcards.repository.LedgerRepo;
 import com.example.bankcards.repository.UserRepo;
+import com.example.bankcards.security.PanDigester;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -28,9 +45,23 @@ class CardServiceTest {
     @Mock
     private UserRepo userRepo;
 
+    @Mock
+    private LedgerRepo ledgerRepo;
+
+    @Mock
+    private CardCache cardCache;
+
+    @Mock
+    private CardStatsService cardStatsService;
+
+    @Mock
+    private PanDigester panDigester;
+
     @InjectMocks
     private CardService cardService;
 
+    private static final byte[] DIGEST = {1, 2, 3};
+
     private User user;
 
     @BeforeEach
@@ -39,6 +70,9 @@ class CardServiceTest {
         user = new User();
         user.setId(UUID.randomUUID());
         user.setUsername("testuser");
+        when(panDigester.digest(any())).thenReturn(DIGEST);
+        when(cardCache.get(any(), any()))
+                .thenAnswer(i -> i.<Function<UUID, CardSnapshot>>getArgument(1).apply(i.getArgument(0)));
     }
 
     @Test
@@ -50,7 +84,7 @@ class CardServiceTest {
         request.setBalance(BigDecimal.valueOf(1000));
 
         when(userRepo.findById(user.getId())).thenReturn(Optional.of(user));
-        when(cardRepo.save(any(Card.class))).thenAnswer(i -> i.getArgument(0));
+        when(cardRepo.saveAndFlush(any(Card.class))).thenAnswer(i -> i.getArgument(0));
 
         Card created = cardService.createCard(request);
 
@@ -58,6 +92,9 @@ class CardServiceTest {
         assertEquals(CardStatus.ACTIVE, created.getStatus());
         assertEquals(user, created.getUser());
         assertEquals("1234567812345678", created.getNumber());
+        verify(ledgerRepo).postOpening(created.getId(), BigDecimal.valueOf(1000));
+        verify(cardStatsService).recordCreated(List.of(created));
+        assertArrayEquals(DIGEST, created.getNumberDigest());
     }
 
     @Test
@@ -82,6 +119,8 @@ class CardServiceTest {
         cardService.blockCard(card.getId());
 
         assertEquals(CardStatus.BLOCKED, card.getStatus());
+        verify(cardCache).evictAfterCommit(card.getId());
+        verify(cardStatsService).recordStatusChange(card, CardStatus.ACTIVE);
     }
 
     @Test
@@ -89,6 +128,7 @@ class CardServiceTest {
         Card card = new Card();
         card.setId(UUID.randomUUID());
         card.setStatus(CardStatus.BLOCKED);
+        card.setExpiry(LocalDate.now().plusYears(1));
         when(cardRepo.findById(card.getId())).thenReturn(Optional.of(card));
         when(cardRepo.save(card)).thenAnswer(i -> i.getArgument(0));
 
@@ -97,6 +137,21 @@ class CardServiceTest {
         assertEquals(CardStatus.ACTIVE, card.getStatus());
     }
 
+    @Test
+    void activateCard_pastExpiry_marksExpired() {
+        Card card = new Card();
+        card.setId(UUID.randomUUID());
+        card.setStatus(CardStatus.BLOCKED);
+        card.setExpiry(LocalDate.now().minusDays(1));
+        when(cardRepo.findById(card.getId())).thenReturn(Optional.of(card));
+        when(cardRepo.save(card)).thenAnswer(i -> i.getArgument(0));
+
+        cardService.activateCard(card.getId());
+
+        assertEquals(CardStatus.EXPIRED, card.getStatus());
+        verify(cardStatsService).recordStatusChange(card, CardStatus.BLOCKED);
+    }
+
     @Test
     void deleteCard_success() {
         Card card = new Card();
@@ -109,4 +164,212 @@ class CardServiceTest {
 
         assertEquals(CardStatus.DELETED, card.getStatus());
     }
+
+    @Test
+    void getCardSnapshot_loadsCardWithOwner() {
+        Card card = Card.builder()
+                .id(UUID.randomUUID())
+                .number("1234567812345678")
+                .user(user)
+                .expiry(LocalDate.now().plusYears(1))
+                .status(CardStatus.ACTIVE)
+                .balance(BigDecimal.valueOf(1000))
+                .build();
+        when(cardRepo.findWithUserById(card.getId())).thenReturn(Optional.of(card));
+
+        CardSnapshot snapshot = cardService.getCardSnapshot(card.getId());
+
+        assertEquals("testuser", snapshot.ownerUsername());
+        assertEquals("**** **** **** 5678", snapshot.maskedNumber());
+        assertEquals(BigDecimal.valueOf(1000), snapshot.balance());
+        verify(cardRepo, never()).findById(any());
+    }
+
+    @Test
+    void getCardSnapshot_pastExpiry_doesNotWrite() {
+        Card card = Card.builder()
+                .id(UUID.randomUUID())
+                .number("1234567812345678")
+                .user(user)
+                .expiry(LocalDate.now().minusDays(1))
+                .status(CardStatus.ACTIVE)
+                .balance(BigDecimal.ZERO)
+                .build();
+        when(cardRepo.findWithUserById(card.getId())).thenReturn(Optional.of(card));
+
+        CardSnapshot snapshot = cardService.getCardSnapshot(card.getId());
+
+        assertEquals(CardStatus.ACTIVE, snapshot.status());
+        verify(cardRepo, never()).save(any());
+    }
+
+    @Test
+    void getCardsByUser_usesProjectionExcludingDeletedCards() {
+        CardResponse response = new CardResponse(UUID.randomUUID(), "**** **** **** 5678", "testuser",
+                LocalDate.now().plusYears(1), CardStatus.ACTIVE, BigDecimal.TEN);
+        when(cardRepo.findResponsesByUsernameAndStatusNot(eq("testuser"), eq(CardStatus.DELETED), any()))
+                .thenReturn(new PageImpl<>(List.of(response)));
+
+        Page<CardResponse> page = cardService.getCardsByUser("testuser", 0, 10);
+
+        assertEquals(List.of(response), page.getContent());
+        verify(cardRepo).findResponsesByUsernameAndStatusNot(eq("testuser"), eq(CardStatus.DELETED),
+                argThat(p -> p.getPageSize() == 10 && p.getSort().equals(Sort.by("expiry").descending().and(Sort.by("id")))));
+        verifyNoInteractions(userRepo);
+    }
+
+    @Test
+    void searchCards_moreCardsThanSize_returnsCursorOfLastCard() {
+        CardSearchFilter filter = new CardSearchFilter(CardStatus.BLOCKED, null, null, null, null);
+        CardResponse first = new CardResponse(UUID.randomUUID(), "**** **** **** 1111", "testuser",
+                LocalDate.of(2030, 1, 1), CardStatus.BLOCKED, BigDecimal.TEN);
+        CardResponse second = new CardResponse(UUID.randomUUID(), "**** **** **** 2222", "testuser",
+                LocalDate.of(2030, 2, 1), CardStatus.BLOCKED, BigDecimal.TEN);
+        when(cardRepo.search(filter, null, null, 2))
+                .thenReturn(new SliceImpl<>(List.of(first, second), PageRequest.ofSize(2), true));
+
+        CardSearchResponse response = cardService.searchCards(filter, null, 2);
+
+        assertEquals(List.of(first, second), response.getItems());
+        CardCursor next = CardCursor.decode(response.getNextCursor());
+        assertEquals(new CardCursor(second.getExpiry(), second.getId()), next);
+    }
+
+    @Test
+    void searchCards_withCursor_continuesAfterIt() {
+        CardSearchFilter filter = new CardSearchFilter(null, "1111", "testuser", null, null);
+        CardCursor cursor = new CardCursor(LocalDate.of(2030, 1, 1), UUID.randomUUID());
+        when(cardRepo.search(any(), any(), any(), anyInt()))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.ofSize(5), false));
+
+        CardSearchResponse response = cardService.searchCards(filter, cursor.encode(), 5);
+
+        assertNull(response.getNextCursor());
+        verify(cardRepo).search(filter, cursor.expiry(), cursor.id(), 5);
+    }
+
+    @Test
+    void searchCards_invalidInput_throws() {
+        CardSearchFilter filter = new CardSearchFilter(null, "12a4", null, null, null);
+        CardSearchFilter noFilter = new CardSearchFilter(null, null, null, null, null);
+
+        assertThrows(IllegalArgumentException.class, () -> cardService.searchCards(filter, null, 10));
+        assertThrows(IllegalArgumentException.class, () -> cardService.searchCards(noFilter, null, 101));
+        assertThrows(IllegalArgumentException.class, () -> cardService.searchCards(noFilter, "garbage", 10));
+        verify(cardRepo, never()).search(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void getCardsEtagByUser_changesWithCardVersion() {
+        UUID cardId = UUID.randomUUID();
+        when(cardRepo.findVersionsByUsernameAndStatusNot(eq("testuser"), eq(CardStatus.DELETED), any()))
+                .thenReturn(new PageImpl<>(List.of(new CardVersion(cardId, 3L, BigDecimal.ZERO)), PageRequest.of(0, 10), 1),
+                        new PageImpl<>(List.of(new CardVersion(cardId, 3L, BigDecimal.ZERO)), PageRequest.of(0, 10), 1),
+                        new PageImpl<>(List.of(new CardVersion(cardId, 4L, BigDecimal.ZERO)), PageRequest.of(0, 10), 1));
+
+        String first = cardService.getCardsEtagByUser("testuser", 0, 10);
+        String same = cardService.getCardsEtagByUser("testuser", 0, 10);
+        String changed = cardService.getCardsEtagByUser("testuser", 0, 10);
+
+        assertEquals(first, same);
+        assertNotEquals(first, changed);
+        assertTrue(first.startsWith("\"") && first.endsWith("\""));
+        verify(cardRepo, never()).findResponsesByUsernameAndStatusNot(any(), any(), any());
+    }
+
+    @Test
+    void cardEtag_shardedCard_includesShardBalance() {
+        assertEquals("\"7\"", CardEtags.of(7L, BigDecimal.ZERO));
+        assertNotEquals(CardEtags.of(7L, new BigDecimal("5.00")), CardEtags.of(7L, new BigDecimal("6.00")));
+    }
+
+    @Test
+    void createCard_numberTaken_throws() {
+        CardRequest request = new CardRequest();
+        request.setNumber("1234567812345678");
+        request.setUserId(user.getId());
+        request.setExpiry(LocalDate.now().plusYears(1));
+        request.setBalance(BigDecimal.TEN);
+        when(userRepo.findById(user.getId())).thenReturn(Optional.of(user));
+        when(cardRepo.existsByNumberDigest(DIGEST)).thenReturn(true);
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> cardService.createCard(request));
+
+        assertEquals("Card number already exists", ex.getMessage());
+        verify(cardRepo, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void createCard_numberTakenConcurrently_throwsSameError() {
+        CardRequest request = new CardRequest();
+        request.setNumber("1234567812345678");
+        request.setUserId(user.getId());
+        request.setExpiry(LocalDate.now().plusYears(1));
+        request.setBalance(BigDecimal.TEN);
+        when(userRepo.findById(user.getId())).thenReturn(Optional.of(user));
+        when(cardRepo.saveAndFlush(any(Card.class))).thenThrow(new DataIntegrityViolationException("insert failed",
+                new SQLException("duplicate key value violates unique constraint \"uq_cards_number_digest\"", "23505")));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> cardService.createCard(request));
+
+        assertEquals("Card number already exists", ex.getMessage());
+        verifyNoInteractions(ledgerRepo, cardStatsService);
+    }
+
+    @Test
+    void createCard_otherIntegrityViolation_isRethrown() {
+        CardRequest request = new CardRequest();
+        request.setNumber("1234567812345678");
+        request.setUserId(user.getId());
+        request.setExpiry(LocalDate.now().plusYears(1));
+        request.setBalance(BigDecimal.TEN);
+        when(userRepo.findById(user.getId())).thenReturn(Optional.of(user));
+        DataIntegrityViolationException failure = new DataIntegrityViolationException("insert failed",
+                new SQLException("new row violates check constraint \"chk_cards_balance\"", "23514"));
+        when(cardRepo.saveAndFlush(any(Card.class))).thenThrow(failure);
+
+        assertSame(failure, assertThrows(DataIntegrityViolationException.class, () -> cardService.createCard(request)));
+    }
+
+    @Test
+    void getCardByNumber_looksUpByDigest() {
+        Card card = Card.builder().id(UUID.randomUUID()).user(user).build();
+        when(cardRepo.findByNumberDigest(DIGEST)).thenReturn(Optional.of(card));
+
+        assertEquals(card, cardService.getCardByNumber("1234567812345678"));
+        verify(panDigester).digest("1234567812345678");
+    }
+
+    @Test
+    void getCards_keepsRequestedOrderAndCollapsesDuplicates() {
+        CardResponse first = cardResponse();
+        CardResponse second = cardResponse();
+        UUID missing = UUID.randomUUID();
+        when(cardRepo.findResponsesByIdInAndUsername(any(), eq("testuser"))).thenReturn(List.of(first, second));
+
+        CardBatchGetResponse response = cardService.getCards(
+                List.of(second.getId(), missing, first.getId(), second.getId()), "testuser", false);
+
+        assertEquals(List.of(second, first), response.getCards());
+        assertEquals(List.of(missing), response.getNotFound());
+        verify(cardRepo).findResponsesByIdInAndUsername(
+                new LinkedHashSet<>(List.of(second.getId(), missing, first.getId())), "testuser");
+        verify(cardRepo, never()).findResponsesByIdIn(any());
+    }
+
+    @Test
+    void getCards_admin_seesCardsOfAnyOwner() {
+        CardResponse card = cardResponse();
+        when(cardRepo.findResponsesByIdIn(any())).thenReturn(List.of(card));
+
+        CardBatchGetResponse response = cardService.getCards(List.of(card.getId()), "admin", true);
+
+        assertEquals(List.of(card), response.getCards());
+        verify(cardRepo, never()).findResponsesByIdInAndUsername(any(), any());
+    }
+
+    private CardResponse cardResponse() {
+        return new CardResponse(UUID.randomUUID(), "**** **** **** 1234", user.getUsername(),
+                LocalDate.now().plusYears(1), CardStatus.ACTIVE, BigDecimal.TEN);
+    }
 }
@@ -0,0 +1,118 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CardShardServiceTest {
+
+    @Mock
+    private CardRepo cardRepo;
+
+    @Mock
+    private RetryingTransactionTemplate retryingTransactionTemplate;
+
+    private CardShardService cardShardService;
+
+    private Card card;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(retryingTransactionTemplate.execute(anyString(), any()))
+                .thenAnswer(i -> i.<Supplier<?>>getArgument(1).get());
+        cardShardService = new CardShardService(cardRepo, retryingTransactionTemplate,
+                new SimpleMeterRegistry(), Duration.ofMinutes(1));
+
+        card = Card.builder()
+                .id(UUID.randomUUID())
+                .balance(BigDecimal.valueOf(100))
+                .shardCount(4)
+                .build();
+    }
+
+    @Test
+    void ensureBalance_mainBalanceShort_foldsShards() {
+        when(cardRepo.drainShards(card.getId())).thenReturn(BigDecimal.valueOf(300));
+
+        cardShardService.ensureBalance(card, BigDecimal.valueOf(250));
+
+        assertEquals(BigDecimal.valueOf(400), card.getBalance());
+    }
+
+    @Test
+    void ensureBalance_mainBalanceSufficient_leavesShards() {
+        cardShardService.ensureBalance(card, BigDecimal.valueOf(50));
+
+        verify(cardRepo, never()).drainShards(any());
+    }
+
+    @Test
+    void creditShard_selectsShardBySourceCard() {
+        UUID fromCardId = UUID.randomUUID();
+        when(cardRepo.creditShardIfActive(any(), anyInt(), any())).thenReturn(1);
+
+        assertTrue(cardShardService.creditShard(card.getId(), 4, fromCardId, BigDecimal.TEN));
+
+        verify(cardRepo).creditShardIfActive(card.getId(), Math.floorMod(fromCardId.hashCode(), 4), BigDecimal.TEN);
+    }
+
+    @Test
+    void creditShard_layoutChanged_forgetsCachedShardCount() {
+        when(cardRepo.findShardCountById(card.getId())).thenReturn(Optional.of(4), Optional.of(0));
+        when(cardRepo.creditShardIfActive(any(), anyInt(), any())).thenReturn(0);
+
+        assertFalse(cardShardService.creditShard(card.getId(), UUID.randomUUID(), BigDecimal.TEN));
+
+        assertFalse(cardShardService.isSharded(card.getId()));
+        verify(cardRepo, times(2)).findShardCountById(card.getId());
+    }
+
+    @Test
+    void reshard_foldsExistingShardsBeforeReplacingThem() {
+        when(cardRepo.findByIdForUpdate(card.getId())).thenReturn(Optional.of(card));
+        when(cardRepo.drainShards(card.getId())).thenReturn(BigDecimal.valueOf(50));
+        when(cardRepo.save(card)).thenReturn(card);
+
+        cardShardService.reshard(card.getId(), 8);
+
+        assertEquals(BigDecimal.valueOf(150), card.getBalance());
+        assertEquals(8, card.getShardCount());
+        InOrder inOrder = inOrder(cardRepo);
+        inOrder.verify(cardRepo).drainShards(card.getId());
+        inOrder.verify(cardRepo).deleteShards(card.getId());
+        inOrder.verify(cardRepo).createShards(card.getId(), 8);
+    }
+
+    @Test
+    void reshard_countOutOfRange_throws() {
+        assertThrows(IllegalArgumentException.class, () ->
+                cardShardService.reshard(card.getId(), CardShardService.MAX_SHARDS + 1));
+    }
+
+    @Test
+    void consolidate_foldsEveryCardWithPendingCredits() {
+        when(cardRepo.findIdsWithPendingShardBalance()).thenReturn(List.of(card.getId()));
+        when(cardRepo.findByIdForUpdate(card.getId())).thenReturn(Optional.of(card));
+        when(cardRepo.drainShards(card.getId())).thenReturn(BigDecimal.valueOf(25));
+
+        cardShardService.consolidate();
+
+        assertEquals(BigDecimal.valueOf(125), card.getBalance());
+    }
+}
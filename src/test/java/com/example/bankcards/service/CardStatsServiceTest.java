@@ -0,0 +1,138 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.CardStatsResponse;
+import com.example.bankcards.dto.CardStatusStats;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.repository.CardStatsDelta;
+import com.example.bankcards.repository.CardStatsRepo;
+import com.example.bankcards.repository.ChangedCard;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CardStatsServiceTest {
+
+    private static final LocalDate EXPIRY = LocalDate.of(2030, 5, 20);
+
+    @Mock
+    private CardStatsRepo cardStatsRepo;
+
+    @Mock
+    private RetryingTransactionTemplate retryingTransactionTemplate;
+
+    private CardStatsService cardStatsService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(retryingTransactionTemplate.execute(anyString(), any()))
+                .thenAnswer(i -> i.<Supplier<?>>getArgument(1).get());
+        Clock clock = Clock.fixed(Instant.parse("2025-03-10T12:00:00Z"), ZoneOffset.UTC);
+        cardStatsService = new CardStatsService(cardStatsRepo, retryingTransactionTemplate,
+                new SimpleMeterRegistry(), clock);
+    }
+
+    @Test
+    void recordStatusChange_movesCardBetweenStatuses() {
+        Card card = Card.builder()
+                .id(UUID.randomUUID())
+                .status(CardStatus.BLOCKED)
+                .expiry(EXPIRY)
+                .balance(new BigDecimal("40.00"))
+                .build();
+
+        cardStatsService.recordStatusChange(card, CardStatus.ACTIVE);
+
+        verify(cardStatsRepo).apply(List.of(
+                new CardStatsDelta(CardStatus.ACTIVE, EXPIRY, -1, new BigDecimal("-40.00")),
+                new CardStatsDelta(CardStatus.BLOCKED, EXPIRY, 1, new BigDecimal("40.00"))));
+    }
+
+    @Test
+    void recordStatusChange_sameStatus_writesNothing() {
+        Card card = Card.builder().status(CardStatus.ACTIVE).expiry(EXPIRY).balance(BigDecimal.TEN).build();
+
+        cardStatsService.recordStatusChange(card, CardStatus.ACTIVE);
+
+        verifyNoInteractions(cardStatsRepo);
+    }
+
+    @Test
+    void recordStatusChanges_movesCardsToExpired() {
+        ChangedCard expired = mock(ChangedCard.class);
+        when(expired.getPreviousStatus()).thenReturn(CardStatus.BLOCKED);
+        when(expired.getStatus()).thenReturn(CardStatus.EXPIRED);
+        when(expired.getExpiry()).thenReturn(EXPIRY);
+        when(expired.getBalance()).thenReturn(BigDecimal.ONE);
+
+        cardStatsService.recordStatusChanges(List.of(expired));
+
+        verify(cardStatsRepo).apply(List.of(
+                new CardStatsDelta(CardStatus.BLOCKED, EXPIRY, -1, BigDecimal.ONE.negate()),
+                new CardStatsDelta(CardStatus.EXPIRED, EXPIRY, 1, BigDecimal.ONE)));
+    }
+
+    @Test
+    void getStats_sumsMonthsPerStatusAndCountsCurrentMonth() {
+        LocalDate march = LocalDate.of(2025, 3, 1);
+        when(cardStatsRepo.findCounts()).thenReturn(List.of(
+                new CardStatsDelta(CardStatus.ACTIVE, march, 3, BigDecimal.ZERO),
+                new CardStatsDelta(CardStatus.ACTIVE, LocalDate.of(2026, 1, 1), 5, BigDecimal.ZERO),
+                new CardStatsDelta(CardStatus.BLOCKED, march, 1, BigDecimal.ZERO),
+                new CardStatsDelta(CardStatus.DELETED, march, 7, BigDecimal.ZERO)));
+        when(cardStatsRepo.findBalances()).thenReturn(Map.of(
+                CardStatus.ACTIVE, new BigDecimal("80.00"),
+                CardStatus.BLOCKED, new BigDecimal("1.00")));
+
+        CardStatsResponse stats = cardStatsService.getStats();
+
+        assertEquals(CardStatus.values().length, stats.getStatuses().size());
+        CardStatusStats active = stats.getStatuses().get(0);
+        assertEquals(CardStatus.ACTIVE, active.getStatus());
+        assertEquals(8, active.getCount());
+        assertEquals(new BigDecimal("80.00"), active.getTotalBalance());
+        assertEquals(0, stats.getStatuses().get(2).getCount());
+        assertEquals(BigDecimal.ZERO, stats.getStatuses().get(2).getTotalBalance());
+        assertEquals(4, stats.getExpiringThisMonth());
+    }
+
+    @Test
+    void reconcile_appliesDriftInTransaction() {
+        List<CardStatsDelta> drift = List.of(
+                new CardStatsDelta(CardStatus.BLOCKED, EXPIRY, -1, BigDecimal.ZERO),
+                new CardStatsDelta(CardStatus.ACTIVE, null, 0, new BigDecimal("2.50")));
+        when(cardStatsRepo.findDrift()).thenReturn(drift);
+
+        cardStatsService.reconcile();
+
+        verify(retryingTransactionTemplate).execute(eq("card-stats-reconcile"), any());
+        verify(cardStatsRepo).apply(drift);
+        verify(cardStatsRepo).deleteEmpty();
+    }
+
+    @Test
+    void reconcile_noDrift_writesNothing() {
+        when(cardStatsRepo.findDrift()).thenReturn(List.of());
+
+        cardStatsService.reconcile();
+
+        verifyNoInteractions(retryingTransactionTemplate);
+        verify(cardStatsRepo, never()).apply(any());
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.TransferResponse;
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.repository.IdempotencyRecordRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTest {
+
+    @Mock
+    private TransferService transferService;
+
+    @Mock
+    private IdempotencyRecordRepo idempotencyRecordRepo;
+
+    private IdempotencyService idempotencyService;
+
+    private TransferRequest request;
+    private TransferResponse response;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        idempotencyService = new IdempotencyService(transferService, idempotencyRecordRepo, Duration.ofHours(1), 100, 1000);
+
+        request = new TransferRequest();
+        request.setFromCardId(UUID.randomUUID());
+        request.setToCardId(UUID.randomUUID());
+        request.setAmount(BigDecimal.valueOf(100));
+        response = new TransferResponse(UUID.randomUUID(), request.getFromCardId(), request.getToCardId(), request.getAmount());
+
+        when(idempotencyRecordRepo.findById(any())).thenReturn(Optional.empty());
+        when(idempotencyRecordRepo.insertIfAbsent(any(), any(), any(), any(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(transferService.transfer(any(), any(), any(), any(), any())).thenAnswer(i -> {
+            i.<Consumer<TransferResponse>>getArgument(4).accept(response);
+            return response;
+        });
+    }
+
+    @Test
+    void transfer_firstCall_executesAndRecordsKey() {
+        TransferResponse result = idempotencyService.transfer("key-1", "testuser", request);
+
+        assertEquals(response, result);
+        verify(idempotencyRecordRepo).insertIfAbsent(eq("testuser:key-1"), eq("testuser"), any(),
+                eq(response.getId()), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void transfer_retry_returnsCachedResultWithoutExecuting() {
+        idempotencyService.transfer("key-1", "testuser", request);
+        TransferResponse retried = idempotencyService.transfer("key-1", "testuser", request);
+
+        assertEquals(response, retried);
+        verify(transferService, times(1)).transfer(any(), any(), any(), any(), any());
+        verify(idempotencyRecordRepo, times(1)).findById(any());
+    }
+
+    @Test
+    void transfer_keyReusedForDifferentTransfer_throws() {
+        idempotencyService.transfer("key-1", "testuser", request);
+        request.setAmount(BigDecimal.valueOf(200));
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () ->
+                idempotencyService.transfer("key-1", "testuser", request));
+
+        assertEquals("Idempotency-Key was already used for a different transfer", ex.getMessage());
+    }
+
+    @Test
+    void transfer_keyStoredInDatabase_returnsStoredResult() {
+        IdempotencyRecord record = IdempotencyRecord.builder()
+                .id("testuser:key-1")
+                .requestHash(IdempotencyService.fingerprint(request))
+                .transferId(response.getId())
+                .fromCardId(response.getFromCardId())
+                .toCardId(response.getToCardId())
+                .amount(response.getAmount())
+                .expiresAt(Instant.now().plusSeconds(60))
+                .build();
+        when(idempotencyRecordRepo.findById("testuser:key-1")).thenReturn(Optional.of(record));
+
+        TransferResponse result = idempotencyService.transfer("key-1", "testuser", request);
+
+        assertEquals(response.getId(), result.getId());
+        verify(transferService, never()).transfer(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void transfer_keysAreScopedByUser() {
+        idempotencyService.transfer("key-1", "testuser", request);
+        idempotencyService.transfer("key-1", "otheruser", request);
+
+        verify(transferService, times(2)).transfer(any(), any(), any(), any(), any());
+    }
+}
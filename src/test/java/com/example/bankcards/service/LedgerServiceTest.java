@@ -0,0 +1,68 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.LedgerBalanceResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepo;
+import com.example.bankcards.repository.LedgerRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LedgerServiceTest {
+
+    @Mock
+    private CardRepo cardRepo;
+
+    @Mock
+    private LedgerRepo ledgerRepo;
+
+    private LedgerService ledgerService;
+
+    private Card card;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ledgerService = new LedgerService(cardRepo, ledgerRepo);
+
+        card = Card.builder()
+                .id(UUID.randomUUID())
+                .balance(new BigDecimal("150.00"))
+                .build();
+        when(cardRepo.findById(card.getId())).thenReturn(Optional.of(card));
+    }
+
+    @Test
+    void getBalance_matchingLedger_isConsistent() {
+        when(ledgerRepo.balance(card.getId())).thenReturn(new BigDecimal("150"));
+
+        LedgerBalanceResponse response = ledgerService.getBalance(card.getId());
+
+        assertTrue(response.isConsistent());
+        assertEquals(new BigDecimal("150"), response.getLedgerBalance());
+    }
+
+    @Test
+    void getBalance_differentLedger_isReported() {
+        when(ledgerRepo.balance(card.getId())).thenReturn(new BigDecimal("100.00"));
+
+        assertFalse(ledgerService.getBalance(card.getId()).isConsistent());
+    }
+
+    @Test
+    void takeSnapshots_foldsPostingsBelowTheHorizon() {
+        when(ledgerRepo.takeSnapshots()).thenReturn(3);
+
+        ledgerService.takeSnapshots();
+
+        verify(ledgerRepo).takeSnapshots();
+    }
+}
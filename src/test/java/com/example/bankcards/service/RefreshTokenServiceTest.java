@@ -0,0 +1,139 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.AuthResponse;
+import com.example.bankcards.entity.RefreshToken;
+import com.example.bankcards.repository.RefreshTokenRepo;
+import com.example.bankcards.repository.RevokedTokenRepo;
+import com.example.bankcards.security.JwtProvider;
+import com.example.bankcards.security.RevokedTokenTable;
+import com.example.bankcards.security.SecurityUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RefreshTokenServiceTest {
+
+    private static final String SECRET = "ff1d94bb2f2ccda614c28ec6a777fdae545e9cf52027fda710381ee5791658f0";
+
+    @Mock
+    private RefreshTokenRepo refreshTokenRepo;
+
+    @Mock
+    private RevokedTokenRepo revokedTokenRepo;
+
+    @Mock
+    private UserDetailsService userDetailsService;
+
+    @Mock
+    private RevokedTokenTable revokedTokenTable;
+
+    private JwtProvider jwtProvider;
+    private RefreshTokenService refreshTokenService;
+    private final List<RefreshToken> saved = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        jwtProvider = new JwtProvider(new SimpleMeterRegistry(), SECRET, 900, "bank-rest", 100);
+        refreshTokenService = new RefreshTokenService(refreshTokenRepo, revokedTokenRepo, userDetailsService,
+                jwtProvider, revokedTokenTable, Duration.ofDays(30));
+
+        when(refreshTokenRepo.save(any())).thenAnswer(i -> {
+            saved.add(i.getArgument(0));
+            return i.getArgument(0);
+        });
+        when(refreshTokenRepo.findByTokenHash(any())).thenAnswer(i -> saved.stream()
+                .filter(t -> t.getTokenHash().equals(i.getArgument(0)))
+                .findFirst());
+        when(userDetailsService.loadUserByUsername("alice")).thenReturn(user(true));
+    }
+
+    @Test
+    void issue_storesDigestWithAccessTokenId() {
+        AuthResponse response = refreshTokenService.issue(user(true));
+
+        RefreshToken stored = saved.get(0);
+        assertNotEquals(response.getRefreshToken(), stored.getTokenHash());
+        assertEquals(64, stored.getTokenHash().length());
+        assertEquals(jwtProvider.verify(response.getToken()).orElseThrow().tokenId(), stored.getAccessTokenId());
+        assertEquals("alice", stored.getUsername());
+    }
+
+    @Test
+    void refresh_consumesTokenAndIssuesOneInSameFamily() {
+        AuthResponse login = refreshTokenService.issue(user(true));
+
+        AuthResponse refreshed = refreshTokenService.refresh(login.getRefreshToken());
+
+        assertNotEquals(login.getRefreshToken(), refreshed.getRefreshToken());
+        assertNotNull(saved.get(0).getRevokedAt());
+        assertNull(saved.get(1).getRevokedAt());
+        assertEquals(saved.get(0).getFamilyId(), saved.get(1).getFamilyId());
+        assertEquals("alice", jwtProvider.verify(refreshed.getToken()).orElseThrow().username());
+    }
+
+    @Test
+    void refresh_consumedToken_revokesFamily() {
+        AuthResponse login = refreshTokenService.issue(user(true));
+        refreshTokenService.refresh(login.getRefreshToken());
+        RefreshToken live = saved.get(1);
+        when(refreshTokenRepo.findByFamilyIdAndAccessExpiresAtAfter(eq(live.getFamilyId()), any()))
+                .thenReturn(List.of(live));
+
+        assertThrows(BadCredentialsException.class, () -> refreshTokenService.refresh(login.getRefreshToken()));
+
+        verify(refreshTokenRepo).revokeFamily(eq(live.getFamilyId()), any());
+        verify(refreshTokenRepo).revokeAccessTokens(live.getFamilyId());
+        verify(revokedTokenTable).revoke(live.getAccessTokenId(), live.getAccessExpiresAt());
+    }
+
+    @Test
+    void refresh_disabledUser_revokesFamily() {
+        AuthResponse login = refreshTokenService.issue(user(true));
+        when(userDetailsService.loadUserByUsername("alice")).thenReturn(user(false));
+
+        assertThrows(BadCredentialsException.class, () -> refreshTokenService.refresh(login.getRefreshToken()));
+
+        verify(refreshTokenRepo).revokeFamily(eq(saved.get(0).getFamilyId()), any());
+        assertEquals(1, saved.size());
+    }
+
+    @Test
+    void refresh_expiredOrUnknownToken_isRejected() {
+        AuthResponse login = refreshTokenService.issue(user(true));
+        saved.get(0).setExpiresAt(Instant.now().minusSeconds(1));
+
+        assertThrows(BadCredentialsException.class, () -> refreshTokenService.refresh(login.getRefreshToken()));
+        assertThrows(BadCredentialsException.class, () -> refreshTokenService.refresh("unknown"));
+        verify(refreshTokenRepo, never()).revokeFamily(any(), any());
+    }
+
+    @Test
+    void logout_revokesFamily_andIgnoresUnknownTokens() {
+        AuthResponse login = refreshTokenService.issue(user(true));
+
+        refreshTokenService.logout(login.getRefreshToken());
+        refreshTokenService.logout("unknown");
+
+        verify(refreshTokenRepo, times(1)).revokeFamily(eq(saved.get(0).getFamilyId()), any());
+        verify(refreshTokenRepo, times(1)).revokeAccessTokens(saved.get(0).getFamilyId());
+    }
+
+    private static SecurityUser user(boolean enabled) {
+        return new SecurityUser("alice", "{bcrypt}hash", enabled, List.of(new SimpleGrantedAuthority("USER")), 1);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.bankcards.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RetryingTransactionTemplateTest {
+
+    private PlatformTransactionManager transactionManager;
+    private MeterRegistry meterRegistry;
+    private RetryingTransactionTemplate template;
+
+    @BeforeEach
+    void setUp() {
+        transactionManager = mock(PlatformTransactionManager.class);
+        TransactionStatus status = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(status);
+
+        meterRegistry = new SimpleMeterRegistry();
+        template = new RetryingTransactionTemplate(transactionManager, meterRegistry);
+        ReflectionTestUtils.setField(template, "maxAttempts", 3);
+        ReflectionTestUtils.setField(template, "initialBackoffMs", 0L);
+    }
+
+    private double count(String name) {
+        return meterRegistry.find(name).counters().stream().mapToDouble(c -> c.count()).sum();
+    }
+
+    @Test
+    void execute_success_runsOnce() {
+        String result = template.execute("test", () -> "ok");
+
+        assertEquals("ok", result);
+        verify(transactionManager, times(1)).commit(any());
+        assertEquals(1, count("tx.executions"));
+        assertEquals(0, count("tx.conflicts"));
+    }
+
+    @Test
+    void execute_optimisticConflict_retriesUntilSuccess() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = template.execute("test", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Card", "id");
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(2, count("tx.conflicts"));
+        assertEquals(2, count("tx.retries"));
+        verify(transactionManager, times(2)).rollback(any());
+    }
+
+    @Test
+    void execute_optimisticConflict_givesUpAfterMaxAttempts() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> template.execute("test", () -> {
+            calls.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Card", "id");
+        }));
+
+        assertEquals(3, calls.get());
+        assertEquals(1, count("tx.retries.exhausted"));
+    }
+
+    @Test
+    void execute_businessFailure_isNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> template.execute("test", () -> {
+            calls.incrementAndGet();
+            throw new RuntimeException("Insufficient funds");
+        }));
+
+        assertEquals("Insufficient funds", ex.getMessage());
+        assertEquals(1, calls.get());
+        assertEquals(0, count("tx.conflicts"));
+    }
+
+    @Test
+    void execute_deadlock_isRetriedAndCounted() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = template.execute("test", () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new CannotAcquireLockException("deadlock", new SQLException("deadlock detected", "40P01"));
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(1, meterRegistry.counter("tx.retries", "operation", "test", "reason", "deadlock").count());
+    }
+
+    @Test
+    void execute_serializationFailure_isRetriedAndCounted() {
+        AtomicInteger calls = new AtomicInteger();
+
+        template.execute("test", () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new CannotAcquireLockException("serialization", new SQLException("could not serialize", "40001"));
+            }
+            return "ok";
+        });
+
+        assertEquals(2, calls.get());
+        assertEquals(1, meterRegistry.counter("tx.retries", "operation", "test", "reason", "serialization_failure").count());
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.TransferHistoryItem;
+import com.example.bankcards.repository.CardRepo;
+import com.example.bankcards.repository.TransferRepo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StatementServiceTest {
+
+    @Mock
+    private CardRepo cardRepo;
+
+    @Mock
+    private TransferRepo transferRepo;
+
+    private StatementService statementService;
+
+    private UUID cardId;
+    private TransferHistoryItem outgoing;
+    private TransferHistoryItem incoming;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ObjectMapper objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        statementService = new StatementService(cardRepo, transferRepo, objectMapper);
+
+        cardId = UUID.randomUUID();
+        UUID otherCardId = UUID.randomUUID();
+        outgoing = new TransferHistoryItem(UUID.randomUUID(), cardId, otherCardId,
+                new BigDecimal("10.50"), Instant.parse("2025-01-01T10:00:00Z"));
+        incoming = new TransferHistoryItem(UUID.randomUUID(), otherCardId, cardId,
+                new BigDecimal("3.00"), Instant.parse("2025-01-02T10:00:00Z"));
+        when(transferRepo.streamByCard(cardId)).thenReturn(Stream.of(outgoing, incoming));
+    }
+
+    @Test
+    void export_csv_writesHeaderAndOneLinePerTransfer() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = statementService.export(cardId, StatementFormat.CSV, false, out);
+
+        assertEquals(2, count);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("id,from_card_id,to_card_id,amount,created_at", lines[0]);
+        assertEquals(outgoing.getId() + "," + cardId + "," + outgoing.getToCardId() + ",10.50,2025-01-01T10:00:00Z",
+                lines[1]);
+    }
+
+    @Test
+    void export_ndjson_writesOneJsonObjectPerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        statementService.export(cardId, StatementFormat.NDJSON, false, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].startsWith("{\"id\":\"" + incoming.getId() + "\""));
+        assertTrue(lines[1].contains("\"createdAt\":\"2025-01-02T10:00:00Z\""));
+    }
+
+    @Test
+    void export_gzip_producesCompleteGzipStream() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        statementService.export(cardId, StatementFormat.CSV, true, out);
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertEquals(3, content.split("\n").length);
+        }
+    }
+
+    @Test
+    void checkAccess_otherUsersCard_throws() {
+        when(cardRepo.existsByIdAndUserUsername(cardId, "hacker")).thenReturn(false);
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () ->
+                statementService.checkAccess(cardId, "hacker", false));
+
+        assertEquals("Card not found", ex.getMessage());
+    }
+
+    @Test
+    void statementFormat_parsesNamesIgnoringCase() {
+        assertEquals(StatementFormat.NDJSON, StatementFormat.from("ndjson"));
+        assertThrows(IllegalArgumentException.class, () -> StatementFormat.from("xml"));
+    }
+}
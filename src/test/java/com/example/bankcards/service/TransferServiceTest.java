@@ -1,20 +1,31 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.BatchTransferResponse;
+import com.example.bankcards.dto.TransferHistoryItem;
+import com.example.bankcards.dto.TransferHistoryResponse;
+import com.example.bankcards.dto.TransferRequest;
 import com.example.bankcards.dto.TransferResponse;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.Transfer;
 import com.example.bankcards.repository.CardRepo;
+import com.example.bankcards.repository.LedgerRepo;
 import com.example.bankcards.repository.TransferRepo;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -27,6 +38,18 @@ public class TransferServiceTest {
     @Mock
     private TransferRepo transferRepo;
 
+    @Mock
+    private LedgerRepo ledgerRepo;
+
+    @Mock
+    private RetryingTransactionTemplate retryingTransactionTemplate;
+
+    @Mock
+    private CardShardService cardShardService;
+
+    @Mock
+    private CardCache cardCache;
+
     @InjectMocks
     private TransferService transferService;
 
@@ -36,6 +59,8 @@ public class TransferServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(retryingTransactionTemplate.execute(anyString(), any()))
+                .thenAnswer(i -> i.<Supplier<?>>getArgument(1).get());
 
         fromCard = new Card();
         fromCard.setId(UUID.randomUUID());
@@ -122,4 +147,275 @@ public class TransferServiceTest {
         assertEquals("You can only transfer from your own card", ex.getMessage());
     }
 
+    private TransferRequest request(UUID from, UUID to, long amount) {
+        TransferRequest request = new TransferRequest();
+        request.setFromCardId(from);
+        request.setToCardId(to);
+        request.setAmount(BigDecimal.valueOf(amount));
+        return request;
+    }
+
+    @Test
+    void transferBatch_appliesAllItems() {
+        when(cardRepo.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(fromCard, toCard));
+
+        BatchTransferResponse result = transferService.transferBatch(List.of(
+                request(fromCard.getId(), toCard.getId(), 100),
+                request(fromCard.getId(), toCard.getId(), 300)
+        ), "testuser");
+
+        assertEquals(2, result.getSucceeded());
+        assertEquals(0, result.getFailed());
+        assertEquals(BigDecimal.valueOf(600), fromCard.getBalance());
+        assertEquals(BigDecimal.valueOf(900), toCard.getBalance());
+        verify(cardRepo, times(1)).findAllByIdForUpdate(anyCollection());
+        verify(transferRepo).batchInsert(argThat(transfers -> transfers.size() == 2));
+        verify(ledgerRepo).postTransfers(argThat(transfers -> transfers.size() == 2));
+    }
+
+    @Test
+    void transferBatch_reportsFailedItemsWithoutAffectingOthers() {
+        when(cardRepo.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(fromCard, toCard));
+
+        BatchTransferResponse result = transferService.transferBatch(List.of(
+                request(fromCard.getId(), toCard.getId(), 900),
+                request(fromCard.getId(), toCard.getId(), 200),
+                request(fromCard.getId(), UUID.randomUUID(), 50),
+                request(fromCard.getId(), toCard.getId(), 100)
+        ), "testuser");
+
+        assertEquals(2, result.getSucceeded());
+        assertEquals(2, result.getFailed());
+        assertEquals("Insufficient funds", result.getResults().get(1).getError());
+        assertEquals("Card not found", result.getResults().get(2).getError());
+        assertTrue(result.getResults().get(3).isSuccess());
+        assertEquals(BigDecimal.valueOf(0), fromCard.getBalance());
+        assertEquals(BigDecimal.valueOf(1500), toCard.getBalance());
+    }
+
+    @Test
+    void transferBatch_allItemsFailed_skipsInsert() {
+        when(cardRepo.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(fromCard, toCard));
+
+        BatchTransferResponse result = transferService.transferBatch(List.of(
+                request(fromCard.getId(), toCard.getId(), 100)
+        ), "hacker");
+
+        assertEquals(1, result.getFailed());
+        assertEquals("You can only transfer from your own card", result.getResults().get(0).getError());
+        verify(transferRepo, never()).batchInsert(any());
+    }
+
+    @Test
+    void transfer_conditionalUpdate_success() {
+        ReflectionTestUtils.setField(transferService, "mode", TransferMode.CONDITIONAL_UPDATE);
+        when(cardRepo.debitIfAllowed(fromCard.getId(), BigDecimal.valueOf(200), "testuser")).thenReturn(1);
+        when(cardRepo.creditIfActive(toCard.getId(), BigDecimal.valueOf(200))).thenReturn(1);
+
+        TransferResponse result = transferService.transfer(fromCard.getId(), toCard.getId(), BigDecimal.valueOf(200), "testuser");
+
+        assertNotNull(result.getId());
+        assertEquals(BigDecimal.valueOf(200), result.getAmount());
+        verify(transferRepo).insert(any(Transfer.class));
+        verify(cardRepo, never()).findByIdForUpdate(any());
+    }
+
+    @Test
+    void transfer_recordsBalancedLedgerPostings() {
+        mockBothCards();
+        when(transferRepo.save(any(Transfer.class))).thenAnswer(i -> i.getArgument(0));
+
+        transferService.transfer(fromCard.getId(), toCard.getId(), BigDecimal.valueOf(200), "testuser");
+
+        verify(cardCache).evictAfterCommit(List.of(fromCard.getId(), toCard.getId()));
+        verify(ledgerRepo).postTransfers(argThat(transfers -> transfers.size() == 1
+                && transfers.get(0).getFromCard() == fromCard
+                && transfers.get(0).getToCard() == toCard
+                && transfers.get(0).getAmount().equals(BigDecimal.valueOf(200))));
+    }
+
+    @Test
+    void transfer_failed_recordsNoLedgerPostings() {
+        mockBothCards();
+
+        assertThrows(RuntimeException.class, () ->
+                transferService.transfer(fromCard.getId(), toCard.getId(), BigDecimal.valueOf(2000), "testuser"));
+
+        verifyNoInteractions(ledgerRepo);
+        verifyNoInteractions(cardCache);
+    }
+
+    @Test
+    void transfer_conditionalUpdate_insufficientFunds() {
+        ReflectionTestUtils.setField(transferService, "mode", TransferMode.CONDITIONAL_UPDATE);
+        when(cardRepo.debitIfAllowed(any(), any(), any())).thenReturn(0);
+        when(cardRepo.findById(fromCard.getId())).thenReturn(Optional.of(fromCard));
+        when(cardRepo.findById(toCard.getId())).thenReturn(Optional.of(toCard));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () ->
+                transferService.transfer(fromCard.getId(), toCard.getId(), BigDecimal.valueOf(2000), "testuser"));
+
+        assertEquals("Insufficient funds", ex.getMessage());
+        verify(transferRepo, never()).insert(any());
+    }
+
+    @Test
+    void transfer_conditionalUpdate_toInactiveCard_throws() {
+        ReflectionTestUtils.setField(transferService, "mode", TransferMode.CONDITIONAL_UPDATE);
+        toCard.setStatus(CardStatus.BLOCKED);
+        when(cardRepo.debitIfAllowed(any(), any(), any())).thenReturn(1);
+        when(cardRepo.creditIfActive(any(), any())).thenReturn(0);
+        when(cardRepo.findById(fromCard.getId())).thenReturn(Optional.of(fromCard));
+        when(cardRepo.findById(toCard.getId())).thenReturn(Optional.of(toCard));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () ->
+                transferService.transfer(fromCard.getId(), toCard.getId(), BigDecimal.valueOf(100), "testuser"));
+
+        assertEquals("Both cards must be active", ex.getMessage());
+        verify(transferRepo, never()).insert(any());
+    }
+
+    @Test
+    void transfer_optimistic_loadsCardsWithoutLocks() {
+        ReflectionTestUtils.setField(transferService, "mode", TransferMode.OPTIMISTIC);
+        when(cardRepo.findById(fromCard.getId())).thenReturn(Optional.of(fromCard));
+        when(cardRepo.findById(toCard.getId())).thenReturn(Optional.of(toCard));
+        when(transferRepo.save(any(Transfer.class))).thenAnswer(i -> i.getArgument(0));
+
+        transferService.transfer(fromCard.getId(), toCard.getId(), BigDecimal.valueOf(200), "testuser");
+
+        assertEquals(BigDecimal.valueOf(800), fromCard.getBalance());
+        assertEquals(BigDecimal.valueOf(700), toCard.getBalance());
+        verify(cardRepo, never()).findByIdForUpdate(any());
+        verify(retryingTransactionTemplate).execute(eq("transfer"), any());
+    }
+
+    @Test
+    void transfer_locksCardsInCanonicalOrder() {
+        UUID low = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        UUID high = UUID.fromString("ffffffff-0000-0000-0000-000000000001");
+        fromCard.setId(high);
+        toCard.setId(low);
+        mockBothCards();
+        when(transferRepo.save(any(Transfer.class))).thenAnswer(i -> i.getArgument(0));
+
+        transferService.transfer(high, low, BigDecimal.valueOf(100), "testuser");
+
+        InOrder inOrder = inOrder(cardRepo);
+        inOrder.verify(cardRepo).findByIdForUpdate(low);
+        inOrder.verify(cardRepo).findByIdForUpdate(high);
+    }
+
+    @Test
+    void cardLockOrder_matchesUnsignedUuidOrder() {
+        UUID low = UUID.fromString("7fffffff-ffff-ffff-ffff-ffffffffffff");
+        UUID high = UUID.fromString("80000000-0000-0000-0000-000000000000");
+
+        assertTrue(CardLockOrder.locksFirst(low, high));
+        assertFalse(CardLockOrder.locksFirst(high, low));
+    }
+
+    @Test
+    void transfer_conditionalUpdate_creditsFirstWhenTargetLocksFirst() {
+        ReflectionTestUtils.setField(transferService, "mode", TransferMode.CONDITIONAL_UPDATE);
+        UUID low = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        UUID high = UUID.fromString("ffffffff-0000-0000-0000-000000000001");
+        when(cardRepo.debitIfAllowed(any(), any(), any())).thenReturn(1);
+        when(cardRepo.creditIfActive(any(), any())).thenReturn(1);
+
+        transferService.transfer(high, low, BigDecimal.valueOf(100), "testuser");
+
+        InOrder inOrder = inOrder(cardRepo);
+        inOrder.verify(cardRepo).creditIfActive(low, BigDecimal.valueOf(100));
+        inOrder.verify(cardRepo).debitIfAllowed(high, BigDecimal.valueOf(100), "testuser");
+    }
+
+    @Test
+    void transfer_toShardedCard_creditsShardUnderSharedLock() {
+        toCard.setShardCount(4);
+        when(cardShardService.isSharded(toCard.getId())).thenReturn(true);
+        when(cardShardService.creditShard(toCard.getId(), 4, fromCard.getId(), BigDecimal.valueOf(200))).thenReturn(true);
+        when(cardRepo.findByIdForUpdate(fromCard.getId())).thenReturn(Optional.of(fromCard));
+        when(cardRepo.findByIdForShare(toCard.getId())).thenReturn(Optional.of(toCard));
+        when(transferRepo.save(any(Transfer.class))).thenAnswer(i -> i.getArgument(0));
+
+        transferService.transfer(fromCard.getId(), toCard.getId(), BigDecimal.valueOf(200), "testuser");
+
+        assertEquals(BigDecimal.valueOf(800), fromCard.getBalance());
+        assertEquals(BigDecimal.valueOf(500), toCard.getBalance());
+        verify(cardRepo, never()).findByIdForUpdate(toCard.getId());
+        verify(cardRepo, never()).save(toCard);
+    }
+
+    @Test
+    void transfer_toCardNoLongerSharded_failsWithRetryableConflict() {
+        when(cardShardService.isSharded(toCard.getId())).thenReturn(true);
+        when(cardRepo.findByIdForUpdate(fromCard.getId())).thenReturn(Optional.of(fromCard));
+        when(cardRepo.findByIdForShare(toCard.getId())).thenReturn(Optional.of(toCard));
+
+        assertThrows(OptimisticLockingFailureException.class, () ->
+                transferService.transfer(fromCard.getId(), toCard.getId(), BigDecimal.valueOf(200), "testuser"));
+
+        verify(transferRepo, never()).save(any());
+    }
+
+    @Test
+    void transfer_conditionalUpdate_foldsShardsWhenMainBalanceIsShort() {
+        ReflectionTestUtils.setField(transferService, "mode", TransferMode.CONDITIONAL_UPDATE);
+        when(cardRepo.debitIfAllowed(any(), any(), any())).thenReturn(0, 1);
+        when(cardShardService.foldShards(fromCard.getId())).thenReturn(true);
+        when(cardRepo.creditIfActive(any(), any())).thenReturn(1);
+
+        transferService.transfer(fromCard.getId(), toCard.getId(), BigDecimal.valueOf(200), "testuser");
+
+        verify(cardRepo, times(2)).debitIfAllowed(fromCard.getId(), BigDecimal.valueOf(200), "testuser");
+        verify(transferRepo).insert(any(Transfer.class));
+    }
+
+    private TransferHistoryItem historyItem(UUID from, UUID to, long epochSecond) {
+        return new TransferHistoryItem(UUID.randomUUID(), from, to, BigDecimal.TEN, Instant.ofEpochSecond(epochSecond));
+    }
+
+    @Test
+    void getCardHistory_mergesDirectionsNewestFirstAndReturnsCursor() {
+        UUID cardId = fromCard.getId();
+        TransferHistoryItem out3 = historyItem(cardId, toCard.getId(), 300);
+        TransferHistoryItem out1 = historyItem(cardId, toCard.getId(), 100);
+        TransferHistoryItem in2 = historyItem(toCard.getId(), cardId, 200);
+        when(cardRepo.existsByIdAndUserUsername(cardId, "testuser")).thenReturn(true);
+        when(transferRepo.findOutgoingBefore(eq(cardId), any(), any(), any())).thenReturn(List.of(out3, out1));
+        when(transferRepo.findIncomingBefore(eq(cardId), any(), any(), any())).thenReturn(List.of(in2));
+
+        TransferHistoryResponse page = transferService.getCardHistory(cardId, null, 2, "testuser", false);
+
+        assertEquals(List.of(out3, in2), page.getItems());
+        assertNotNull(page.getNextCursor());
+        TransferCursor cursor = TransferCursor.decode(page.getNextCursor());
+        assertEquals(in2.getCreatedAt(), cursor.createdAt());
+        assertEquals(in2.getId(), cursor.id());
+    }
+
+    @Test
+    void getCardHistory_lastPage_hasNoCursor() {
+        UUID cardId = fromCard.getId();
+        when(cardRepo.existsByIdAndUserUsername(cardId, "testuser")).thenReturn(true);
+        when(transferRepo.findOutgoingBefore(eq(cardId), any(), any(), any()))
+                .thenReturn(List.of(historyItem(cardId, toCard.getId(), 100)));
+
+        TransferHistoryResponse page = transferService.getCardHistory(cardId, null, 2, "testuser", false);
+
+        assertEquals(1, page.getItems().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getCardHistory_otherUsersCard_throws() {
+        when(cardRepo.existsByIdAndUserUsername(any(), any())).thenReturn(false);
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () ->
+                transferService.getCardHistory(fromCard.getId(), null, 10, "hacker", false));
+
+        assertEquals("Card not found", ex.getMessage());
+        verifyNoInteractions(transferRepo);
+    }
 }